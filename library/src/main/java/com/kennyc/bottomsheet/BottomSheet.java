@@ -1,17 +1,17 @@
 package com.kennyc.bottomsheet;
 
 import android.app.Dialog;
+import android.content.ActivityNotFoundException;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.content.res.Resources;
-import android.content.res.TypedArray;
-import android.graphics.Color;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.IntegerRes;
 import android.support.annotation.LayoutRes;
@@ -20,13 +20,15 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.StringRes;
 import android.support.annotation.StyleRes;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.view.ViewCompat;
+import android.text.Layout;
 import android.text.TextUtils;
 import android.util.Log;
 import android.view.Gravity;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.Menu;
-import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
@@ -39,12 +41,23 @@ import android.widget.GridView;
 import android.widget.TextView;
 
 import com.kennyc.bottomsheet.adapters.AppAdapter;
+import com.kennyc.bottomsheet.adapters.FlatItemView;
 import com.kennyc.bottomsheet.adapters.GridAdapter;
-import com.kennyc.bottomsheet.menu.BottomSheetMenu;
+import com.kennyc.bottomsheet.adapters.ItemViewPool;
+import com.kennyc.bottomsheet.adapters.ListDiff;
+import com.kennyc.bottomsheet.adapters.MeasuredTextView;
+import com.kennyc.bottomsheet.adapters.PagedGridAdapter;
+import com.kennyc.bottomsheet.adapters.TextMeasurer;
 import com.kennyc.bottomsheet.menu.BottomSheetMenuItem;
+import com.kennyc.bottomsheet.menu.BottomSheetSubMenu;
+import com.kennyc.bottomsheet.menu.MenuTemplateCache;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -59,22 +72,88 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
 
     private static final String TAG = BottomSheet.class.getSimpleName();
 
-    private static final int[] ATTRS = new int[]{
-            R.attr.bottom_sheet_bg_color, // 0
-            R.attr.bottom_sheet_title_text_appearance, // 1
-            R.attr.bottom_sheet_list_text_appearance,// 2
-            R.attr.bottom_sheet_grid_text_appearance, // 3
-            R.attr.bottom_sheet_message_text_appearance, // 4
-            R.attr.bottom_sheet_message_title_text_appearance, // 5
-            R.attr.bottom_sheet_button_text_appearance, // 6
-            R.attr.bottom_sheet_item_icon_color, // 7
-            R.attr.bottom_sheet_grid_spacing, // 8
-            R.attr.bottom_sheet_grid_top_padding, // 9
-            R.attr.bottom_sheet_grid_bottom_padding, // 10
-            R.attr.bottom_sheet_selector, // 11
-            R.attr.bottom_sheet_column_count // 12
+    private static final int PRELOAD_ITEM_COUNT = 12;
+
+    private static final long PREPARED_TIMEOUT = 10000L;
+
+    private static final int CONTENT_VIEW = 0;
+
+    private static final int CONTENT_MESSAGE = 1;
+
+    private static final int CONTENT_ITEMS = 2;
+
+    private static final int CONTENT_APPS = 3;
+
+    private static final ListDiff.ItemCallback<ItemSnapshot> MENU_ITEM_CALLBACK = new ListDiff.ItemCallback<ItemSnapshot>() {
+        @Override
+        public long getId(ItemSnapshot item) {
+            return item.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(ItemSnapshot oldItem, ItemSnapshot newItem) {
+            return TextUtils.equals(oldItem.title, newItem.title)
+                    && (oldItem.icon == null ? newItem.icon == null : oldItem.icon.equals(newItem.icon))
+                    && oldItem.enabled == newItem.enabled
+                    && oldItem.checkable == newItem.checkable
+                    && oldItem.checked == newItem.checked;
+        }
     };
 
+    private static final ListDiff.ItemCallback<AppAdapter.AppInfo> APP_CALLBACK = new ListDiff.ItemCallback<AppAdapter.AppInfo>() {
+        @Override
+        public long getId(AppAdapter.AppInfo item) {
+            return item.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(AppAdapter.AppInfo oldItem, AppAdapter.AppInfo newItem) {
+            return oldItem == newItem || (TextUtils.equals(oldItem.title, newItem.title) && oldItem.drawable == newItem.drawable);
+        }
+    };
+
+    /**
+     * The state of a {@link MenuItem} the diff compares, read on the main thread as the items may be changed on it while
+     * the diff is calculated
+     */
+    private static class ItemSnapshot {
+        final long id;
+
+        final String title;
+
+        // The icon resource, or the drawable of items whose icon was not set from a resource
+        final Object icon;
+
+        final boolean enabled;
+
+        final boolean checkable;
+
+        final boolean checked;
+
+        ItemSnapshot(MenuItem item) {
+            CharSequence itemTitle = item.getTitle();
+            id = item.getItemId();
+            title = itemTitle != null ? itemTitle.toString() : null;
+            enabled = item.isEnabled();
+            checkable = item.isCheckable();
+            checked = item.isChecked();
+
+            int iconRes = item instanceof BottomSheetMenuItem ? ((BottomSheetMenuItem) item).getIconResId() : 0;
+            // Icons of the same resource look the same, so they don't need to be loaded for comparing
+            icon = iconRes != 0 ? Integer.valueOf(iconRes) : item.getIcon();
+        }
+    }
+
+    private static List<ItemSnapshot> snapshot(List<MenuItem> items) {
+        List<ItemSnapshot> snapshots = new ArrayList<>(items.size());
+
+        for (MenuItem item : items) {
+            snapshots.add(new ItemSnapshot(item));
+        }
+
+        return snapshots;
+    }
+
     private Builder builder;
 
     private BaseAdapter adapter;
@@ -87,6 +166,127 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
 
     private int which = BottomSheetListener.DISMISS_EVENT_MANUAL;
 
+    // The style the window of the sheet was created with
+    @StyleRes
+    private final int themeStyle;
+
+    // The theme of the context the sheet was created with, attributes its style does not define resolve against it
+    private final Resources.Theme hostTheme;
+
+    // The context the item views are inflated with, shared with the other sheets of the same owner and style
+    private final Context itemContext;
+
+    // If the window of the sheet has been created, which happens the first time it is shown
+    private boolean created;
+
+    // If the sheet was rebound to another Builder after being shown, and has not been shown since
+    private boolean rebound;
+
+    // If the sheet was dismissed after being created, and has not been shown since
+    private boolean dismissed;
+
+    // If the layout was built by Builder#prepare() and has not been shown yet
+    private boolean prepared;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final Runnable prepareRunnable = new Runnable() {
+        @Override
+        public void run() {
+            createContent();
+            prepared = true;
+
+            // Measuring and laying out the layout at the width it will be shown at binds the visible rows
+            Resources res = getContext().getResources();
+            int width = getSheetWidth();
+            int height = res.getDisplayMetrics().heightPixels;
+            collapsingView.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.AT_MOST));
+            collapsingView.layout(0, 0, collapsingView.getMeasuredWidth(), collapsingView.getMeasuredHeight());
+
+            // Don't hold on to the item views if the sheet is never shown
+            handler.postDelayed(releaseRunnable, PREPARED_TIMEOUT);
+        }
+    };
+
+    private final Runnable releaseRunnable = new Runnable() {
+        @Override
+        public void run() {
+            release();
+        }
+    };
+
+    private boolean isTablet;
+
+    private boolean autoColumns;
+
+    private ShareTargetLoader moreLoader;
+
+    // If the share targets were replaced by setApps(List), the loaders must not add theirs
+    private boolean appsReplaced;
+
+    private int diffGeneration;
+
+    @StyleRes
+    private int listTextAppearance;
+
+    @StyleRes
+    private int gridTextAppearance;
+
+    private int tintColor;
+
+    private int activatedColor;
+
+    private int gridSpacing;
+
+    private int gridSelector;
+
+    // Pages of the submenus that have been opened, kept so going back to one does not bind it again
+    private final Map<BottomSheetSubMenu, SheetPage> subMenuPages = new HashMap<>();
+
+    // The page being shown, NULL when showing the items of the sheet
+    @Nullable
+    private SheetPage currentPage;
+
+    // Items whose properties changed since the last frame, their rows are bound again together on the next one
+    private final Set<MenuItem> changedItems = Collections.newSetFromMap(new IdentityHashMap<MenuItem, Boolean>());
+
+    private boolean itemVisibilityChanged;
+
+    private boolean itemChangesScheduled;
+
+    private final BottomSheetMenuItem.OnItemChangedListener itemChangedListener = new BottomSheetMenuItem.OnItemChangedListener() {
+        @Override
+        public void onItemChanged(@NonNull BottomSheetMenuItem item, boolean visibilityChanged) {
+            changedItems.add(item);
+            itemVisibilityChanged |= visibilityChanged;
+
+            if (!itemChangesScheduled && grid != null) {
+                // Changes made by group operations arrive one item at a time, apply them in a single pass
+                itemChangesScheduled = true;
+                ViewCompat.postOnAnimation(grid, itemChangesRunnable);
+            }
+        }
+    };
+
+    private final Runnable itemChangesRunnable = new Runnable() {
+        @Override
+        public void run() {
+            itemChangesScheduled = false;
+
+            if (adapter instanceof GridAdapter && !(adapter instanceof PagedGridAdapter)) {
+                applyItemChanges(grid, (GridAdapter) adapter, builder.menuItems);
+            }
+
+            for (SheetPage page : subMenuPages.values()) {
+                applyItemChanges(page.grid, page.adapter, page.items);
+            }
+
+            changedItems.clear();
+            itemVisibilityChanged = false;
+        }
+    };
+
     private final Runnable dismissRunnable = new Runnable() {
         @Override
         public void run() {
@@ -95,6 +295,61 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
         }
     };
 
+    private final ShareTargetLoader.Callback shareCallback = new ShareTargetLoader.Callback() {
+        @Override
+        public void onTargetsQueried(int count) {
+            AppAdapter appAdapter = (AppAdapter) adapter;
+
+            if (count <= 0 && appAdapter.getAppCount() <= 0) {
+                // Nothing can handle the intent, post the dismissal as we may still be within onCreate
+                if (getWindow() != null) {
+                    getWindow().getDecorView().post(new Runnable() {
+                        @Override
+                        public void run() {
+                            dismiss();
+                        }
+                    });
+                } else {
+                    dismiss();
+                }
+
+                return;
+            }
+
+            int total = appAdapter.getAppCount() + count;
+            if (autoColumns) grid.setNumColumns(getNumColumns(isTablet, total));
+            appAdapter.setPlaceholderCount(total);
+        }
+
+        @Override
+        public void onTargetsLoaded(List<AppAdapter.AppInfo> apps) {
+            AppAdapter appAdapter = (AppAdapter) adapter;
+            int start = appAdapter.getAppCount();
+            // Only the rows of the placeholders being replaced need to be bound again
+            if (appAdapter.fillPlaceholders(apps)) ListDiff.rebind(grid, appAdapter, start, start + apps.size());
+        }
+
+        @Override
+        public void onTargetsDropped(int count) {
+            ((AppAdapter) adapter).removePlaceholders(count);
+            onAppsRemoved((AppAdapter) adapter);
+        }
+
+        @Override
+        public void onLoadFinished() {
+            // Placeholders have all been replaced at this point
+        }
+    };
+
+    private final ShareTargetCache.Listener packageListener = new ShareTargetCache.Listener() {
+        @Override
+        public void onPackagesRemoved(Set<String> packageNames) {
+            if (adapter instanceof AppAdapter && ((AppAdapter) adapter).removePackages(packageNames)) {
+                onAppsRemoved((AppAdapter) adapter);
+            }
+        }
+    };
+
     /**
      * Default constructor. It is recommended to use the {@link com.kennyc.bottomsheet.BottomSheet.Builder} for creating a BottomSheet
      *
@@ -104,20 +359,38 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
     private BottomSheet(Context context, Builder builder) {
         super(context, builder.style);
         this.builder = builder;
+        themeStyle = builder.style;
+        hostTheme = context.getTheme();
+        itemContext = ItemViewPool.getItemContext(context, builder.style);
         listener = builder.listener;
+        // Measure the titles while the window is being created
+        precomputeText();
     }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        handler.removeCallbacks(prepareRunnable);
+        handler.removeCallbacks(releaseRunnable);
 
+        // Built ahead of time by Builder#prepare()
+        if (!prepared) createContent();
+        prepared = false;
+        created = true;
+        if (listener != null) listener.onSheetShown(this);
+    }
+
+    /**
+     * Sets up the window and creates the layout of the sheet
+     */
+    private void createContent() {
         if (!canCreateSheet()) {
             throw new IllegalStateException("Unable to create BottomSheet, missing params");
         }
 
         Window window = getWindow();
         int width = getContext().getResources().getDimensionPixelSize(R.dimen.bottom_sheet_width);
-        boolean isTablet = width > 0;
+        isTablet = width > 0;
         setCancelable(builder.cancelable);
 
         if (window != null) {
@@ -127,28 +400,219 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
             Log.e(TAG, "Window came back as null, unable to set defaults");
         }
 
-        TypedArray ta = getContext().obtainStyledAttributes(ATTRS);
+        initContent(SheetStyle.get(getContext(), hostTheme, themeStyle, builder.style));
+    }
+
+    /**
+     * Creates the layout of the sheet on the next message of the main thread, then measures and lays it out at the width
+     * it will be shown at. Showing the sheet afterwards only attaches the layout to the window.
+     */
+    private void prepare() {
+        handler.post(prepareRunnable);
+    }
+
+    /**
+     * Releases the layout of a sheet returned by {@link Builder#prepare()} that will not be shown, or cancels preparing
+     * it if it has not been built yet. The item views are handed back to the pool. Showing the sheet afterwards creates
+     * its layout again. Has no effect on a showing sheet.
+     */
+    public void release() {
+        handler.removeCallbacks(prepareRunnable);
+        handler.removeCallbacks(releaseRunnable);
+        if (!prepared || isShowing()) return;
+
+        prepared = false;
+        closeSubMenus();
+        observeItems(builder.menuItems, false);
+        if (adapter instanceof PagedGridAdapter) ((PagedGridAdapter) adapter).release();
+        if (grid != null) ItemViewPool.recycle(grid);
+        ItemViewPool.trim(itemContext);
+        if (builder.appLoader != null) {
+            // The loaded targets are replayed into the new adapter when the sheet is shown
+            builder.appLoader.setCallback(null);
+            builder.apps.clear();
+        }
+
+        collapsingView = null;
+        grid = null;
+        adapter = null;
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+
+        boolean reshown = dismissed;
+        dismissed = false;
+
+        if (reshown) {
+            // The items were not observed while the sheet was hidden, catch up with the changes made in the meantime
+            observeItems(builder.menuItems, true);
+            if (adapter instanceof GridAdapter && !(adapter instanceof PagedGridAdapter)) {
+                refreshItems(grid, (GridAdapter) adapter, builder.menuItems);
+            }
+
+            for (SheetPage page : subMenuPages.values()) {
+                observeItems(page.items, true);
+                refreshItems(page.grid, page.adapter, page.items);
+            }
+
+            if (adapter instanceof AppAdapter && !appsReplaced) {
+                // Dismissing cancelled the loaders, the placeholders of the targets they had not delivered are still shown
+                builder.appLoader = resumeLoader(builder.appLoader);
+                moreLoader = resumeLoader(moreLoader);
+            }
+        }
+
+        if (adapter instanceof AppAdapter) {
+            // Apps restored from disk may have been uninstalled, whether before the sheet was shown or while it is showing
+            ShareTargetCache cache = ShareTargetCache.get(getContext());
+            cache.addListener(packageListener);
+            packageListener.onPackagesRemoved(cache.getRemovedPackages());
+        }
+
+        // Shown again after being dismissed, the item views were handed to the pool when it stopped
+        if (grid != null && grid.getAdapter() == null && adapter != null) grid.setAdapter(adapter);
+
+        for (SheetPage page : subMenuPages.values()) {
+            if (page.grid.getAdapter() == null) page.grid.setAdapter(page.adapter);
+        }
+
+        if (rebound || reshown) {
+            rebound = false;
+            if (listener != null) listener.onSheetShown(this);
+        }
+    }
+
+    /**
+     * Reuses the {@link BottomSheet} for the options of another {@link Builder}, keeping its window and layout. When the
+     * new options are shown the same way, such as both showing items or both showing a message, only their content is
+     * bound again. Otherwise the layout is replaced within the same window. The style of the window itself can't change,
+     * the attributes of the new style are applied to the content.
+     *
+     * @param builder The options to show the next time the {@link BottomSheet} is shown
+     */
+    public void rebind(@NonNull Builder builder) {
+        if (isShowing()) throw new IllegalStateException("Unable to rebind a BottomSheet while it is showing");
+
+        Builder previous = this.builder;
+        // Whether the sheet was prepared or shown before, the previous items must no longer update it
+        observeItems(previous.menuItems, false);
+        this.builder = builder;
+        listener = builder.listener;
+        which = BottomSheetListener.DISMISS_EVENT_MANUAL;
+        precomputeText();
+        // Not created yet, onCreate will use the new options
+        if (collapsingView == null) return;
+
+        if (!canCreateSheet()) {
+            throw new IllegalStateException("Unable to create BottomSheet, missing params");
+        }
+
+        // Drop what belonged to the previous options
+        closeSubMenus();
+        diffGeneration++;
+        autoColumns = false;
+        moreLoader = null;
+        appsReplaced = false;
+        setCancelable(builder.cancelable);
+        // The first time the sheet is shown onCreate notifies the listener
+        rebound = created;
+
+        SheetStyle style = SheetStyle.get(getContext(), hostTheme, themeStyle, builder.style);
+        int content = getContentType(builder);
+
+        if (content == CONTENT_MESSAGE && getContentType(previous) == CONTENT_MESSAGE) {
+            collapsingView.enableDrag(builder.cancelable);
+            bindMessage(style);
+        } else if (content == CONTENT_ITEMS && getContentType(previous) == CONTENT_ITEMS) {
+            collapsingView.enableDrag(builder.cancelable);
+            bindLayout(style, builder.columnCount);
+            initMenu(style);
+        } else {
+            grid = null;
+            adapter = null;
+            initContent(style);
+        }
+    }
+
+    /**
+     * Returns how the options of the {@link Builder} are shown
+     *
+     * @param builder
+     * @return
+     */
+    private static int getContentType(Builder builder) {
+        if (builder.view != null) return CONTENT_VIEW;
+        if (!TextUtils.isEmpty(builder.message)) return CONTENT_MESSAGE;
+        return builder.menuItems != null || builder.dataSource != null ? CONTENT_ITEMS : CONTENT_APPS;
+    }
 
+    /**
+     * Creates the layout of the sheet for the options of the {@link Builder}
+     *
+     * @param style The resolved attributes of the style
+     */
+    private void initContent(SheetStyle style) {
         if (builder.view != null) {
-            initViewLayout(ta);
+            initViewLayout(style);
         } else if (!TextUtils.isEmpty(builder.message)) {
-            initMessageLayout(ta);
+            initMessageLayout(style);
         } else {
-            initLayout(ta, isTablet, builder.columnCount);
+            initLayout(style, isTablet, builder.columnCount);
 
-            if (builder.menuItems != null) {
-                initMenu(ta);
+            if (builder.menuItems != null || builder.dataSource != null) {
+                initMenu(style);
             } else {
-                grid.setAdapter(adapter = new AppAdapter(getContext(), builder.apps, builder.isGrid));
+                AppAdapter appAdapter = new AppAdapter(itemContext, builder.apps, builder.isGrid);
+                appAdapter.setFlatItems(builder.flatItems);
+
+                if (builder.moreApps != null && !builder.moreApps.isEmpty()) {
+                    appAdapter.setMoreItem(new AppAdapter.AppInfo(getContext().getString(R.string.bottom_sheet_more), null, null,
+                            ContextCompat.getDrawable(getContext(), android.R.drawable.ic_menu_more)));
+                }
+
+                grid.setAdapter(adapter = appAdapter);
+                if (builder.appLoader != null) builder.appLoader.setCallback(shareCallback);
             }
         }
+    }
 
-        ta.recycle();
-        if (listener != null) listener.onSheetShown(this);
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // The window is gone, hand the item views over to the next sheet
+        if (grid != null) ItemViewPool.recycle(grid);
+
+        for (SheetPage page : subMenuPages.values()) {
+            ItemViewPool.recycle(page.grid);
+        }
+
+        ItemViewPool.trim(itemContext);
+        ShareTargetCache.get(getContext()).removeListener(packageListener);
     }
 
     @Override
     public void dismiss() {
+        if (builder.appLoader != null) builder.appLoader.cancel();
+        if (moreLoader != null) moreLoader.cancel();
+        // Persist the share target icons that were loaded while the sheet was showing
+        if (adapter instanceof AppAdapter) ShareTargetCache.get(getContext()).flush();
+        if (adapter instanceof PagedGridAdapter) ((PagedGridAdapter) adapter).release();
+        observeItems(builder.menuItems, false);
+
+        for (SheetPage page : subMenuPages.values()) {
+            observeItems(page.items, false);
+        }
+
+        // Shown again, the sheet starts from its own items
+        if (currentPage != null) showPage(null);
+
+        if (grid != null) grid.removeCallbacks(itemChangesRunnable);
+        itemChangesScheduled = false;
+        changedItems.clear();
+        itemVisibilityChanged = false;
+        dismissed = true;
         if (listener != null) listener.onSheetDismissed(this, which);
         super.dismiss();
     }
@@ -156,32 +620,50 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
     /**
      * Initializes the layout for a message
      *
-     * @param ta The {@link TypedArray} containing the style attributes
+     * @param style The resolved attributes of the style
      */
-    private void initMessageLayout(TypedArray ta) {
-        collapsingView = (CollapsingView) LayoutInflater.from(getContext()).inflate(R.layout.bottom_sheet_message_layout, null);
+    private void initMessageLayout(SheetStyle style) {
+        collapsingView = (CollapsingView) inflateSheet(R.layout.bottom_sheet_message_layout);
         collapsingView.setCollapseListener(this);
         collapsingView.enableDrag(builder.cancelable);
-        collapsingView.findViewById(R.id.container).setBackgroundColor(ta.getColor(0, Color.WHITE));
+        bindMessage(style);
+        setContentView(collapsingView);
+    }
+
+    /**
+     * Binds the title, message and buttons of a message layout
+     *
+     * @param style The resolved attributes of the style
+     */
+    private void bindMessage(SheetStyle style) {
+        collapsingView.findViewById(R.id.container).setBackgroundColor(style.backgroundColor);
 
         TextView title = (TextView) collapsingView.findViewById(R.id.title);
-        boolean hasTitle = !TextUtils.isEmpty(builder.title) || builder.icon != null;
+        Drawable icon = builder.getIcon();
+        boolean hasTitle = !TextUtils.isEmpty(builder.title) || icon != null;
 
         if (hasTitle) {
             title.setText(builder.title);
             title.setVisibility(View.VISIBLE);
-            title.setCompoundDrawablesWithIntrinsicBounds(builder.icon, null, null, null);
-            Compat.setTextAppearance(title, ta.getResourceId(5, R.style.BottomSheet_Message_Title_TextAppearance));
+            title.setCompoundDrawablesWithIntrinsicBounds(icon, null, null, null);
+            Compat.setTextAppearance(title, style.messageTitleTextAppearance);
         } else {
             title.setVisibility(View.GONE);
         }
 
         TextView message = (TextView) collapsingView.findViewById(R.id.message);
         message.setText(builder.message);
-        Compat.setTextAppearance(message, ta.getResourceId(4, R.style.BottomSheet_Message_TextAppearance));
+        Compat.setTextAppearance(message, style.messageTextAppearance);
+
+        Button positive = (Button) collapsingView.findViewById(R.id.positive);
+        Button negative = (Button) collapsingView.findViewById(R.id.negative);
+        Button neutral = (Button) collapsingView.findViewById(R.id.neutral);
+        // Hidden unless set, a rebound sheet may have shown them before
+        positive.setVisibility(View.GONE);
+        negative.setVisibility(View.GONE);
+        neutral.setVisibility(View.GONE);
 
         if (!TextUtils.isEmpty(builder.positiveBtn)) {
-            Button positive = (Button) collapsingView.findViewById(R.id.positive);
             positive.setText(builder.positiveBtn);
             positive.setVisibility(View.VISIBLE);
             positive.setOnClickListener(new View.OnClickListener() {
@@ -192,11 +674,10 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
                 }
             });
 
-            Compat.setTextAppearance(positive, ta.getResourceId(6, R.style.BottomSheet_Button_TextAppearance));
+            Compat.setTextAppearance(positive, style.buttonTextAppearance);
         }
 
         if (!TextUtils.isEmpty(builder.negativeBtn)) {
-            Button negative = (Button) collapsingView.findViewById(R.id.negative);
             negative.setText(builder.negativeBtn);
             negative.setVisibility(View.VISIBLE);
             negative.setOnClickListener(new View.OnClickListener() {
@@ -207,11 +688,10 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
                 }
             });
 
-            Compat.setTextAppearance(negative, ta.getResourceId(6, R.style.BottomSheet_Button_TextAppearance));
+            Compat.setTextAppearance(negative, style.buttonTextAppearance);
         }
 
         if (!TextUtils.isEmpty(builder.neutralBtn)) {
-            Button neutral = (Button) collapsingView.findViewById(R.id.neutral);
             neutral.setText(builder.neutralBtn);
             neutral.setVisibility(View.VISIBLE);
             neutral.setOnClickListener(new View.OnClickListener() {
@@ -222,23 +702,21 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
                 }
             });
 
-            Compat.setTextAppearance(neutral, ta.getResourceId(6, R.style.BottomSheet_Button_TextAppearance));
+            Compat.setTextAppearance(neutral, style.buttonTextAppearance);
         }
-
-        setContentView(collapsingView);
     }
 
     /**
      * Initializes the layout for custom view
      *
-     * @param ta The {@link TypedArray} containing the style attributes
+     * @param style The resolved attributes of the style
      */
-    private void initViewLayout(TypedArray ta) {
+    private void initViewLayout(SheetStyle style) {
         collapsingView = new CollapsingView(getContext());
         collapsingView.setLayoutParams(new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.WRAP_CONTENT));
         collapsingView.setCollapseListener(this);
         collapsingView.enableDrag(builder.cancelable);
-        builder.view.setBackgroundColor(ta.getColor(0, Color.WHITE));
+        builder.view.setBackgroundColor(style.backgroundColor);
         collapsingView.addView(builder.view);
         setContentView(collapsingView);
     }
@@ -246,51 +724,122 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
     /**
      * Initializes the layout a standard {@link BottomSheet}
      *
-     * @param ta          The {@link TypedArray} containing the style attributes
+     * @param style       The resolved attributes of the style
      * @param isTablet    If the device is a tablet
      * @param columnCount The number of columns to be shown
      */
-    private void initLayout(TypedArray ta, boolean isTablet, int columnCount) {
-        collapsingView = (CollapsingView) LayoutInflater.from(getContext()).inflate(R.layout.bottom_sheet_layout, null);
+    private void initLayout(SheetStyle style, boolean isTablet, int columnCount) {
+        collapsingView = (CollapsingView) inflateSheet(R.layout.bottom_sheet_layout);
         collapsingView.setCollapseListener(this);
         collapsingView.enableDrag(builder.cancelable);
-        collapsingView.findViewById(R.id.container).setBackgroundColor(ta.getColor(0, Color.WHITE));
-
         grid = (GridView) collapsingView.findViewById(R.id.grid);
         grid.setOnItemClickListener(this);
+        bindLayout(style, columnCount);
+        setContentView(collapsingView);
+    }
+
+    /**
+     * Binds the title and styles the list of a standard {@link BottomSheet}
+     *
+     * @param style       The resolved attributes of the style
+     * @param columnCount The number of columns to be shown
+     */
+    private void bindLayout(SheetStyle style, int columnCount) {
+        collapsingView.findViewById(R.id.container).setBackgroundColor(style.backgroundColor);
         TextView title = (TextView) collapsingView.findViewById(R.id.title);
         boolean hasTitle = !TextUtils.isEmpty(builder.title);
 
+        // Styled even without a title, submenus show theirs in it
+        Compat.setTextAppearance(title, style.titleTextAppearance);
+
         if (hasTitle) {
             title.setText(builder.title);
             title.setVisibility(View.VISIBLE);
-            Compat.setTextAppearance(title, ta.getResourceId(1, R.style.BottomSheet_Title_TextAppearance));
         } else {
             title.setVisibility(View.GONE);
         }
 
         if (builder.isGrid) {
-            int spacing = ta.getDimensionPixelOffset(8, 0);
-            int topPadding = ta.getDimensionPixelOffset(9, 0);
-            int bottomPadding = ta.getDimensionPixelOffset(10, 0);
-            grid.setVerticalSpacing(spacing);
-            grid.setPadding(0, topPadding, 0, bottomPadding);
+            gridSpacing = style.gridSpacing;
+            grid.setVerticalSpacing(gridSpacing);
+            grid.setPadding(0, style.gridTopPadding, 0, style.gridBottomPadding);
         } else {
+            gridSpacing = 0;
+            grid.setVerticalSpacing(0);
             int padding = getContext().getResources().getDimensionPixelSize(R.dimen.bottom_sheet_list_padding);
             grid.setPadding(0, hasTitle ? 0 : padding, 0, padding);
         }
 
         if (columnCount <= 0) {
-            columnCount = ta.getInteger(12, -1);
-            if (columnCount <= 0) columnCount = getNumColumns(isTablet);
+            columnCount = style.columnCount;
+
+            if (columnCount <= 0) {
+                autoColumns = true;
+                columnCount = getNumColumns(isTablet, getItemCount());
+            }
         }
 
         grid.setNumColumns(columnCount);
 
-        int selector = ta.getResourceId(11, R.drawable.bs_list_selector);
-        grid.setSelector(selector);
+        gridSelector = style.selector;
+        grid.setSelector(gridSelector);
+    }
+
+    /**
+     * Measures the titles of the rows, or the message, on a background thread as soon as the {@link Builder} is known,
+     * ahead of the first layout pass. The number of columns is resolved the same way {@link #bindLayout(SheetStyle, int)} will.
+     */
+    private void precomputeText() {
+        if (builder.view != null) return;
 
-        setContentView(collapsingView);
+        SheetStyle style = SheetStyle.get(getContext(), hostTheme, themeStyle, builder.style);
+
+        if (!TextUtils.isEmpty(builder.message)) {
+            // Matches the padding of the message in the message layout
+            int padding = getContext().getResources().getDimensionPixelSize(R.dimen.bottom_sheet_dialog_padding_message);
+            TextMeasurer.precompute(Collections.singletonList(builder.message), MeasuredTextView.createPaint(getContext(),
+                    style.messageTextAppearance), getSheetWidth() - padding * 2, Layout.Alignment.ALIGN_NORMAL, false);
+            return;
+        }
+
+        if (builder.menuItems == null && builder.apps == null) return;
+        int columnCount = builder.columnCount > 0 ? builder.columnCount : style.columnCount;
+
+        if (columnCount <= 0) {
+            boolean isTablet = getContext().getResources().getDimensionPixelSize(R.dimen.bottom_sheet_width) > 0;
+            columnCount = getNumColumns(isTablet, getItemCount());
+        }
+
+        int itemWidth = getSheetWidth() / columnCount;
+
+        if (builder.menuItems != null) {
+            int textAppearance = builder.isGrid ? style.gridTextAppearance : style.listTextAppearance;
+            GridAdapter.precomputeTitles(itemContext, builder.menuItems, builder.isGrid, builder.flatItems, textAppearance, itemWidth);
+        } else {
+            AppAdapter.precomputeTitles(itemContext, builder.apps, builder.isGrid, builder.flatItems, itemWidth);
+        }
+    }
+
+    /**
+     * Returns the width in pixels the {@link BottomSheet} will be shown at
+     *
+     * @return
+     */
+    private int getSheetWidth() {
+        Resources res = getContext().getResources();
+        int width = res.getDimensionPixelSize(R.dimen.bottom_sheet_width);
+        return width > 0 ? width : res.getDisplayMetrics().widthPixels;
+    }
+
+    /**
+     * Returns the sheet layout preloaded by {@link #preload(Context, int, boolean)}, inflating it if none is available
+     *
+     * @param layoutRes The layout of the sheet
+     * @return
+     */
+    private View inflateSheet(@LayoutRes int layoutRes) {
+        View view = LayoutPreloader.get(getContext()).takeSheet(itemContext, layoutRes);
+        return view != null ? view : LayoutInflater.from(getContext()).inflate(layoutRes, null);
     }
 
     /**
@@ -299,66 +848,336 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
      * adjusted based on how many items are to be displayed.
      *
      * @param isTablet If the device is a tablet
+     * @param numItems The number of items that will be displayed
+     * @return
+     */
+    private int getNumColumns(boolean isTablet, int numItems) {
+        if (builder.isGrid) {
+            // Show 4 columns if a tablet and the number of its is 4 or >=7
+            if ((numItems >= 7 || numItems == GRID_MAX_COLUMN) && isTablet) {
+                return GRID_MAX_COLUMN;
+            } else {
+                return GRID_MIN_COLUMNS;
+            }
+        }
+
+        // If a tablet with more than 6 items are present, split them into 2 columns
+        if (isTablet) return numItems >= MIN_LIST_TABLET_ITEMS ? 2 : 1;
+
+        // Regular phone, one column
+        return 1;
+    }
+
+    /**
+     * Returns the number of items known when the {@link BottomSheet} is created
+     *
      * @return
      */
-    private int getNumColumns(boolean isTablet) {
-        int numItems;
+    private int getItemCount() {
+        if (builder.menuItems != null) return GridAdapter.getVisibleItems(builder.menuItems).size();
+        if (builder.dataSource != null) return builder.dataSource.getCount();
+        return builder.apps != null ? builder.apps.size() : 0;
+    }
+
+    /**
+     * Initializes the List based on the menu resource
+     *
+     * @param style The resolved attributes of the style
+     */
+    private void initMenu(SheetStyle style) {
+        listTextAppearance = style.listTextAppearance;
+        gridTextAppearance = style.gridTextAppearance;
+        tintColor = style.itemIconColor;
+        activatedColor = style.itemActivatedColor;
+        GridAdapter gridAdapter;
 
         if (builder.menuItems != null) {
-            numItems = builder.menuItems.size();
+            gridAdapter = new GridAdapter(itemContext, builder.menuItems, builder.isGrid, listTextAppearance, gridTextAppearance, tintColor);
+            observeItems(builder.menuItems, true);
         } else {
-            numItems = builder.apps.size();
+            gridAdapter = new PagedGridAdapter(itemContext, builder.dataSource, builder.pageSize, builder.isGrid, listTextAppearance, gridTextAppearance, tintColor);
+        }
+
+        gridAdapter.setFlatItems(builder.flatItems);
+        gridAdapter.setActivatedColor(activatedColor);
+        grid.setAdapter(adapter = gridAdapter);
+    }
+
+    /**
+     * Starts or stops listening for changes to the properties of the items, so the rows of a showing
+     * {@link BottomSheet} follow them
+     *
+     * @param items   The items
+     * @param observe If changes should be listened for
+     */
+    private void observeItems(@Nullable List<MenuItem> items, boolean observe) {
+        if (items == null) return;
+
+        for (MenuItem item : items) {
+            if (!(item instanceof BottomSheetMenuItem)) continue;
+
+            if (observe) {
+                ((BottomSheetMenuItem) item).setOnItemChangedListener(itemChangedListener);
+            } else {
+                ((BottomSheetMenuItem) item).removeOnItemChangedListener(itemChangedListener);
+            }
+        }
+    }
+
+    /**
+     * Binds the visible rows of the items that changed since the last frame again. When the visibility of an item
+     * changed, the items of the adapter are replaced and the difference is dispatched instead
+     *
+     * @param list        The list showing the items
+     * @param gridAdapter The adapter of the items
+     * @param items       Every item of the adapter, including the ones that are not visible
+     */
+    private void applyItemChanges(GridView list, GridAdapter gridAdapter, List<MenuItem> items) {
+        if (itemVisibilityChanged) {
+            List<MenuItem> oldItems = gridAdapter.getItems();
+            gridAdapter.setItems(items);
+            ListDiff.Result result = ListDiff.calculate(snapshot(oldItems), snapshot(gridAdapter.getItems()), MENU_ITEM_CALLBACK);
+
+            if (result.isStructureChanged()) {
+                if (autoColumns) list.setNumColumns(getNumColumns(isTablet, gridAdapter.getCount()));
+
+                // The items changed in place compare the same as before, so the diff would keep their rows
+                for (MenuItem item : changedItems) {
+                    result.markChanged(item.getItemId());
+                }
+
+                ListDiff.dispatch(result, list, gridAdapter);
+                return;
+            }
+        }
+
+        int first = list.getFirstVisiblePosition();
+
+        for (int i = 0; i < list.getChildCount(); i++) {
+            if (changedItems.contains(gridAdapter.getItem(first + i))) {
+                ListDiff.rebind(list, gridAdapter, first + i, first + i + 1);
+            }
+        }
+    }
+
+    /**
+     * Filters the items of an adapter again, for a sheet shown again whose items may have been hidden or shown while it
+     * was not showing
+     *
+     * @param list        The list showing the items
+     * @param gridAdapter The adapter of the items
+     * @param items       Every item of the adapter, including the ones that are not visible
+     */
+    private void refreshItems(GridView list, GridAdapter gridAdapter, List<MenuItem> items) {
+        gridAdapter.setItems(items);
+        if (autoColumns) list.setNumColumns(getNumColumns(isTablet, gridAdapter.getCount()));
+        // Otherwise every row is bound when the adapter is set on the list again
+        if (list.getAdapter() != null) gridAdapter.notifyDataSetChanged();
+    }
+
+    /**
+     * Shows the items of the submenu in place of the current items, building its page the first time it is opened
+     *
+     * @param subMenu The submenu to open
+     */
+    private void openSubMenu(BottomSheetSubMenu subMenu) {
+        SheetPage page = subMenuPages.get(subMenu);
+
+        if (page == null) {
+            List<MenuItem> items = new ArrayList<>(subMenu.size());
+
+            for (int i = 0; i < subMenu.size(); i++) {
+                items.add(subMenu.getItem(i));
+            }
+
+            ViewGroup container = (ViewGroup) grid.getParent();
+            GridView pageGrid = (GridView) getLayoutInflater().inflate(R.layout.bottom_sheet_page, container, false);
+            GridAdapter pageAdapter = new GridAdapter(itemContext, items, builder.isGrid, listTextAppearance, gridTextAppearance, tintColor);
+            pageAdapter.setFlatItems(builder.flatItems);
+            pageAdapter.setActivatedColor(activatedColor);
+
+            pageGrid.setPadding(grid.getPaddingLeft(), grid.getPaddingTop(), grid.getPaddingRight(), grid.getPaddingBottom());
+            pageGrid.setVerticalSpacing(gridSpacing);
+            pageGrid.setSelector(gridSelector);
+            pageGrid.setNumColumns(autoColumns ? getNumColumns(isTablet, pageAdapter.getCount()) : grid.getNumColumns());
+            pageGrid.setOnItemClickListener(this);
+            pageAdapter.precomputeTitles(getSheetWidth() / Math.max(1, pageGrid.getNumColumns()));
+            pageGrid.setAdapter(pageAdapter);
+            container.addView(pageGrid);
+
+            page = new SheetPage(pageGrid, pageAdapter, subMenu.getHeaderTitle(), subMenu.getHeaderIcon(), subMenu.getHeaderView(), items, currentPage);
+            subMenuPages.put(subMenu, page);
+            observeItems(items, true);
         }
 
-        if (builder.isGrid) {
-            // Show 4 columns if a tablet and the number of its is 4 or >=7
-            if ((numItems >= 7 || numItems == GRID_MAX_COLUMN) && isTablet) {
-                return GRID_MAX_COLUMN;
-            } else {
-                return GRID_MIN_COLUMNS;
+        showPage(page);
+    }
+
+    /**
+     * Swaps the list of the current page for the list of the given page
+     *
+     * @param page The page to show, NULL for the items of the sheet
+     */
+    private void showPage(@Nullable SheetPage page) {
+        (currentPage != null ? currentPage.grid : grid).setVisibility(View.GONE);
+        (page != null ? page.grid : grid).setVisibility(View.VISIBLE);
+        TextView title = (TextView) collapsingView.findViewById(R.id.title);
+        ViewGroup container = (ViewGroup) title.getParent();
+
+        if (currentPage != null && currentPage.headerView != null && currentPage.headerView.getParent() == container) {
+            container.removeView(currentPage.headerView);
+        }
+
+        currentPage = page;
+
+        if (page != null && page.headerView != null) {
+            // The header view of the submenu replaces its title
+            title.setVisibility(View.GONE);
+            if (page.headerView.getParent() == null) container.addView(page.headerView, container.indexOfChild(title) + 1);
+            return;
+        }
+
+        CharSequence text = page != null ? page.title : builder.title;
+        Drawable icon = page != null ? page.icon : null;
+        title.setText(text);
+        title.setCompoundDrawablesWithIntrinsicBounds(icon, null, null, null);
+        title.setVisibility(TextUtils.isEmpty(text) && icon == null ? View.GONE : View.VISIBLE);
+    }
+
+    /**
+     * Removes the pages of every submenu that has been opened
+     */
+    private void closeSubMenus() {
+        if (subMenuPages.isEmpty()) return;
+        if (currentPage != null) showPage(null);
+
+        for (SheetPage page : subMenuPages.values()) {
+            observeItems(page.items, false);
+            ItemViewPool.recycle(page.grid);
+            ((ViewGroup) page.grid.getParent()).removeView(page.grid);
+        }
+
+        subMenuPages.clear();
+    }
+
+    @Override
+    public void onBackPressed() {
+        if (currentPage != null) {
+            // Go back to the page the submenu was opened from
+            showPage(currentPage.parent);
+            return;
+        }
+
+        super.onBackPressed();
+    }
+
+    @Override
+    public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+        if (adapter instanceof GridAdapter || parent != grid) {
+            // Items of a submenu are shown by the list of its page
+            MenuItem item = ((GridAdapter) parent.getAdapter()).getItem(position);
+            // Placeholder that has not been loaded yet
+            if (item == null) return;
+
+            if (item.getSubMenu() instanceof BottomSheetSubMenu) {
+                // The sheet stays open, showing the items of the submenu
+                openSubMenu((BottomSheetSubMenu) item.getSubMenu());
+                return;
+            }
+
+            if (listener != null) listener.onSheetItemSelected(this, item);
+        } else if (adapter instanceof AppAdapter) {
+            AppAdapter appAdapter = (AppAdapter) adapter;
+
+            if (appAdapter.isMoreItem(position)) {
+                expandMoreApps(appAdapter);
+                return;
+            }
+
+            AppAdapter.AppInfo info = appAdapter.getItem(position);
+            // Placeholder that has not been resolved yet
+            if (info == null) return;
+
+            ComponentName component = new ComponentName(info.packageName, info.name);
+            Intent intent = new Intent(getShareIntent(component));
+            intent.setComponent(component);
+            intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+
+            try {
+                getContext().startActivity(intent);
+                ShareTargetUsage.get(getContext()).record(component);
+            } catch (ActivityNotFoundException e) {
+                // Restored from disk and uninstalled before it could be revalidated
+                Log.e(TAG, "Unable to start share target " + component, e);
             }
         }
 
-        // If a tablet with more than 6 items are present, split them into 2 columns
-        if (isTablet) return numItems >= MIN_LIST_TABLET_ITEMS ? 2 : 1;
+        dismiss();
+    }
 
-        // Regular phone, one column
-        return 1;
+    /**
+     * Returns the share {@link Intent} that should be launched for the given share target
+     *
+     * @param component The {@link ComponentName} of the share target
+     * @return
+     */
+    private Intent getShareIntent(ComponentName component) {
+        if (builder.shareIntents != null && builder.shareIntents.containsKey(component)) {
+            return builder.shareIntents.get(component);
+        }
+
+        if (builder.appLoader != null) return builder.appLoader.getIntent(component);
+        return builder.shareIntent;
     }
 
     /**
-     * Initializes the List based on the menu resource
+     * Continues loading the share targets a cancelled loader had not delivered yet
      *
-     * @param ta The {@link TypedArray} containing the style attributes
+     * @param loader The cancelled loader
+     * @return The loader delivering the remaining targets, the given loader if it had finished
      */
-    private void initMenu(TypedArray ta) {
-        int listTextAppearance;
-        int gridTextAppearance;
-        int tintColor;
+    @Nullable
+    private ShareTargetLoader resumeLoader(@Nullable ShareTargetLoader loader) {
+        if (loader == null || loader.isFinished()) return loader;
 
-        listTextAppearance = ta.getResourceId(2, R.style.BottomSheet_ListItem_TextAppearance);
-        gridTextAppearance = ta.getResourceId(3, R.style.BottomSheet_GridItem_TextAppearance);
-        tintColor = ta.getColor(7, Integer.MIN_VALUE);
-        adapter = new GridAdapter(getContext(), builder.menuItems, builder.isGrid, listTextAppearance, gridTextAppearance, tintColor);
-        grid.setAdapter(adapter);
+        ShareTargetLoader resumed = loader.resume();
+        resumed.setCallback(shareCallback);
+        resumed.start();
+        return resumed;
     }
 
-    @Override
-    public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-        if (adapter instanceof GridAdapter) {
-            if (listener != null) {
-                MenuItem item = ((GridAdapter) adapter).getItem(position);
-                listener.onSheetItemSelected(this, item);
-            }
-        } else if (adapter instanceof AppAdapter) {
-            AppAdapter.AppInfo info = ((AppAdapter) adapter).getItem(position);
-            Intent intent = new Intent(builder.shareIntent);
-            intent.setComponent(new ComponentName(info.packageName, info.name));
-            intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-            getContext().startActivity(intent);
+    /**
+     * Updates the sheet after share targets were removed because their app is no longer installed
+     *
+     * @param appAdapter The adapter displaying the share targets
+     */
+    private void onAppsRemoved(AppAdapter appAdapter) {
+        if (appAdapter.getCount() == 0) {
+            // Every share target was uninstalled, post the dismissal as we may still be within onStart
+            grid.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (isShowing()) dismiss();
+                }
+            });
+        } else if (autoColumns) {
+            grid.setNumColumns(getNumColumns(isTablet, appAdapter.getCount()));
         }
+    }
 
-        dismiss();
+    /**
+     * Replaces the "More" item with the remaining share targets, loading them in the background
+     *
+     * @param appAdapter The adapter displaying the share targets
+     */
+    private void expandMoreApps(AppAdapter appAdapter) {
+        appAdapter.setMoreItem(null);
+        if (builder.moreApps == null || builder.moreApps.isEmpty()) return;
+
+        moreLoader = new ShareTargetLoader(getContext(), builder.shareIntent, builder.moreApps);
+        builder.moreApps = null;
+        moreLoader.setCallback(shareCallback);
+        moreLoader.start();
     }
 
     /**
@@ -369,7 +1188,9 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
     private boolean canCreateSheet() {
         return builder != null
                 && ((builder.menuItems != null && !builder.menuItems.isEmpty())
+                || builder.dataSource != null
                 || (builder.apps != null && !builder.apps.isEmpty())
+                || builder.appLoader != null
                 || builder.view != null
                 || !TextUtils.isEmpty(builder.message));
     }
@@ -395,6 +1216,102 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
         return collapsingView;
     }
 
+    /**
+     * Replaces the items of a showing {@link BottomSheet}. The difference with the current items is calculated on a
+     * background thread, items are matched by their id so only the rows that changed are bound again. If the
+     * {@link BottomSheet} has not been created yet, the items of its {@link Builder} are replaced
+     *
+     * @param menuItems The new items
+     */
+    public void setMenuItems(@NonNull final List<MenuItem> menuItems) {
+        if (!(adapter instanceof GridAdapter) || adapter instanceof PagedGridAdapter) {
+            builder.setMenuItems(menuItems);
+            return;
+        }
+
+        final GridAdapter gridAdapter = (GridAdapter) adapter;
+        final List<MenuItem> items = new ArrayList<>(menuItems);
+        final int generation = ++diffGeneration;
+
+        ListDiff.calculateAsync(snapshot(gridAdapter.getItems()), snapshot(GridAdapter.getVisibleItems(items)), MENU_ITEM_CALLBACK, new ListDiff.Listener() {
+            @Override
+            public void onDiffCalculated(@NonNull ListDiff.Result result) {
+                // Ignore stale results, a newer list has been submitted since
+                if (generation != diffGeneration || adapter != gridAdapter) return;
+
+                // The submenus may have been replaced as well
+                closeSubMenus();
+                observeItems(builder.menuItems, false);
+                builder.menuItems = items;
+                observeItems(items, true);
+                gridAdapter.setItems(items);
+                if (autoColumns && result.isStructureChanged()) grid.setNumColumns(getNumColumns(isTablet, gridAdapter.getCount()));
+                ListDiff.dispatch(result, grid, gridAdapter);
+            }
+        });
+    }
+
+    /**
+     * Replaces the items of a showing {@link BottomSheet} with the items of the menu. See {@link #setMenuItems(List)}
+     *
+     * @param menu The menu containing the new items
+     */
+    public void setMenu(@NonNull Menu menu) {
+        List<MenuItem> items = new ArrayList<>(menu.size());
+
+        for (int i = 0; i < menu.size(); i++) {
+            items.add(menu.getItem(i));
+        }
+
+        setMenuItems(items);
+    }
+
+    /**
+     * Replaces the apps of a showing share {@link BottomSheet}, such as after filtering them again. The difference with
+     * the current apps is calculated on a background thread, apps are matched by their component so only the rows that
+     * changed are bound again. Share targets that are still loading are dropped. If the {@link BottomSheet} has not been
+     * created yet, the apps of its {@link Builder} are replaced
+     *
+     * @param apps The new apps
+     */
+    public void setApps(@NonNull List<AppAdapter.AppInfo> apps) {
+        final List<AppAdapter.AppInfo> newApps = new ArrayList<>(apps);
+
+        if (!(adapter instanceof AppAdapter)) {
+            builder.apps = newApps;
+            return;
+        }
+
+        final AppAdapter appAdapter = (AppAdapter) adapter;
+        final int generation = ++diffGeneration;
+
+        ListDiff.calculateAsync(appAdapter.getApps(), newApps, APP_CALLBACK, new ListDiff.Listener() {
+            @Override
+            public void onDiffCalculated(@NonNull ListDiff.Result result) {
+                // Ignore stale results, a newer list has been submitted since
+                if (generation != diffGeneration || adapter != appAdapter) return;
+
+                // The new list replaces whatever was still being loaded, the loader keeps the intent of each target
+                if (builder.appLoader != null) builder.appLoader.cancel();
+                if (moreLoader != null) moreLoader.cancel();
+                appsReplaced = true;
+                builder.apps = newApps;
+                boolean hadPlaceholders = appAdapter.setApps(newApps);
+                if (autoColumns && result.isStructureChanged()) grid.setNumColumns(getNumColumns(isTablet, appAdapter.getCount()));
+                ListDiff.dispatch(result, grid, appAdapter);
+                if (hadPlaceholders && !result.isStructureChanged()) appAdapter.notifyDataSetChanged();
+            }
+        });
+    }
+
+    /**
+     * Notifies the {@link BottomSheet} that the items of its {@link BottomSheetDataSource} have changed. Loaded pages are
+     * dropped and the visible rows are loaded again
+     */
+    public void notifyDataSourceChanged() {
+        if (adapter instanceof PagedGridAdapter) ((PagedGridAdapter) adapter).refresh();
+    }
+
     /**
      * Returns a {@link BottomSheet} to be used as a share intent like Android 5.x+ Share Intent.<p>
      * An example of an intent to pass is sharing some form of text:<br>
@@ -415,42 +1332,110 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
      */
     @Nullable
     public static BottomSheet createShareBottomSheet(Context context, Intent intent, String shareTitle, boolean isGrid, @Nullable Set<String> appsFilter, @Nullable Set<String> toExclude) {
-        if (context == null || intent == null) return null;
-
-        PackageManager manager = context.getPackageManager();
-        List<ResolveInfo> apps = manager.queryIntentActivities(intent, 0);
+        return createShareBottomSheet(context, intent, shareTitle, isGrid, ShareTargetFilters.fromPackages(appsFilter, toExclude));
+    }
 
-        if (apps != null && !apps.isEmpty()) {
-            List<AppAdapter.AppInfo> appResources = new ArrayList<>(apps.size());
-            boolean shouldCheckPackages = appsFilter != null && !appsFilter.isEmpty();
+    /**
+     * Returns a {@link BottomSheet} to be used as a share intent like Android 5.x+ Share Intent.<p>
+     * The {@link ShareTargetFilter} is run against each app before its label and icon are loaded. See {@link ShareTargetFilters}
+     * for filtering by package or component names.
+     *
+     * @param context    App context
+     * @param intent     Intent to get apps for
+     * @param shareTitle The optional title for the share intent
+     * @param isGrid     If the share intent BottomSheet should be grid styled
+     * @param filter     If provided, share will be limited to the apps the filter accepts
+     * @return A {@link BottomSheet} with the apps that can handle the share intent. NULL maybe returned if no
+     * apps can handle the share intent
+     */
+    @Nullable
+    public static BottomSheet createShareBottomSheet(Context context, Intent intent, String shareTitle, boolean isGrid, @Nullable ShareTargetFilter filter) {
+        return createShareBottomSheet(context, intent, shareTitle, isGrid, filter, 0);
+    }
 
-            for (ResolveInfo resolveInfo : apps) {
-                String packageName = resolveInfo.activityInfo.packageName;
+    /**
+     * Returns a {@link BottomSheet} to be used as a share intent like Android 5.x+ Share Intent, only loading the apps
+     * that are chosen most often.<p>
+     * Apps are ranked by how often they have been chosen from a share {@link BottomSheet}. Only the first maxTargets apps
+     * are loaded, followed by a "More" item that will load the remaining apps when selected.
+     *
+     * @param context    App context
+     * @param intent     Intent to get apps for
+     * @param shareTitle The optional title for the share intent
+     * @param isGrid     If the share intent BottomSheet should be grid styled
+     * @param filter     If provided, share will be limited to the apps the filter accepts
+     * @param maxTargets The number of apps to show before the "More" item, 0 to show every app
+     * @return A {@link BottomSheet} with the apps that can handle the share intent. NULL maybe returned if no
+     * apps can handle the share intent
+     */
+    @Nullable
+    public static BottomSheet createShareBottomSheet(Context context, Intent intent, String shareTitle, boolean isGrid, @Nullable ShareTargetFilter filter, int maxTargets) {
+        if (intent == null) return null;
+        return createShareBottomSheet(context, new Intent[]{intent}, shareTitle, isGrid, filter, maxTargets);
+    }
 
-                if (shouldCheckPackages && !appsFilter.contains(packageName)) {
-                    continue;
-                }
+    /**
+     * Returns a {@link BottomSheet} to be used as a share intent for several variants of the content being shared at once,
+     * such as text, image and URL variants.<p>
+     * The intents are resolved in parallel and apps that can handle more than one of them are only shown once, launching
+     * the first intent they can handle. Each app's label and icon are only loaded once.
+     *
+     * @param context    App context
+     * @param intents    Intents to get apps for, in order of preference
+     * @param shareTitle The optional title for the share intent
+     * @param isGrid     If the share intent BottomSheet should be grid styled
+     * @return A {@link BottomSheet} with the apps that can handle the share intents. NULL maybe returned if no
+     * apps can handle the share intents
+     */
+    @Nullable
+    public static BottomSheet createShareBottomSheet(Context context, Intent[] intents, String shareTitle, boolean isGrid) {
+        return createShareBottomSheet(context, intents, shareTitle, isGrid, null, 0);
+    }
 
-                String title = resolveInfo.loadLabel(manager).toString();
-                String name = resolveInfo.activityInfo.name;
-                Drawable drawable = resolveInfo.loadIcon(manager);
-                appResources.add(new AppAdapter.AppInfo(title, packageName, name, drawable));
+    /**
+     * Returns a {@link BottomSheet} to be used as a share intent for several variants of the content being shared at once.
+     * See {@link #createShareBottomSheet(Context, Intent[], String, boolean)} and
+     * {@link #createShareBottomSheet(Context, Intent, String, boolean, ShareTargetFilter, int)}
+     *
+     * @param context    App context
+     * @param intents    Intents to get apps for, in order of preference
+     * @param shareTitle The optional title for the share intent
+     * @param isGrid     If the share intent BottomSheet should be grid styled
+     * @param filter     If provided, share will be limited to the apps the filter accepts
+     * @param maxTargets The number of apps to show before the "More" item, 0 to show every app
+     * @return A {@link BottomSheet} with the apps that can handle the share intents. NULL maybe returned if no
+     * apps can handle the share intents
+     */
+    @Nullable
+    public static BottomSheet createShareBottomSheet(Context context, Intent[] intents, String shareTitle, boolean isGrid, @Nullable ShareTargetFilter filter, int maxTargets) {
+        if (context == null || intents == null || intents.length == 0) return null;
+
+        ShareTargetCache cache = ShareTargetCache.get(context);
+        // Reads the counts used for ranking in the background while the targets are resolved
+        ShareTargetUsage usage = ShareTargetUsage.get(context);
+        ShareTargetResolver.Result result = ShareTargetResolver.resolve(context, intents, filter);
+        List<ResolveInfo> apps = result.targets;
+
+        if (!apps.isEmpty()) {
+            List<ResolveInfo> moreApps = null;
+
+            // Only collapse when it saves more than the row taken up by the "More" item
+            if (maxTargets > 0 && apps.size() > maxTargets + 1) {
+                apps = usage.rank(apps);
+                moreApps = new ArrayList<>(apps.subList(maxTargets, apps.size()));
+                apps = apps.subList(0, maxTargets);
             }
 
-            if (toExclude != null && !toExclude.isEmpty()) {
-                List<AppAdapter.AppInfo> toRemove = new ArrayList<>();
-
-                for (AppAdapter.AppInfo appInfo : appResources) {
-                    if (toExclude.contains(appInfo.packageName)) {
-                        toRemove.add(appInfo);
-                    }
-                }
+            List<AppAdapter.AppInfo> appResources = new ArrayList<>(apps.size());
 
-                if (!toRemove.isEmpty()) appResources.removeAll(toRemove);
+            for (ResolveInfo resolveInfo : apps) {
+                appResources.add(cache.loadAppInfo(resolveInfo));
             }
 
             Builder b = new Builder(context)
-                    .setApps(appResources, intent)
+                    .setApps(appResources, intents[0])
+                    .setShareIntents(intents.length > 1 ? result.intents : null)
+                    .setMoreApps(moreApps)
                     .setTitle(shareTitle);
 
             if (isGrid) b.grid();
@@ -566,6 +1551,165 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
         return createShareBottomSheet(context, intent, context.getString(shareTitle), false, null, null);
     }
 
+    /**
+     * Returns a {@link BottomSheet} to be used as a share intent like {@link #createShareBottomSheet(Context, Intent, String, boolean, Set, Set)},
+     * without blocking the calling thread. The apps are resolved on a background thread and the sheet can be shown immediately,
+     * displaying placeholders that are replaced in chunks as the apps finish loading. If no apps can handle the intent, the
+     * {@link BottomSheet} will dismiss itself. Every app is shown in the order it was resolved in, the apps are only ranked
+     * by how often they were chosen when they are collapsed behind a "More" item, see
+     * {@link #createShareBottomSheet(Context, Intent, String, boolean, ShareTargetFilter, int)}. A sheet shown again after
+     * being dismissed continues loading the apps it had not loaded yet.
+     *
+     * @param context    App context
+     * @param intent     Intent to get apps for
+     * @param shareTitle The optional title for the share intent
+     * @param isGrid     If the share intent BottomSheet should be grid styled
+     * @param appsFilter If provided, share will be limited to contained packaged names
+     * @param toExclude  If provided, share will exclude the given package names
+     * @return A {@link BottomSheet} that will load the apps that can handle the share intent. NULL will be returned if
+     * the context or intent are NULL
+     */
+    @Nullable
+    public static BottomSheet createShareBottomSheetAsync(Context context, Intent intent, String shareTitle, boolean isGrid, @Nullable Set<String> appsFilter, @Nullable Set<String> toExclude) {
+        return createShareBottomSheetAsync(context, intent, shareTitle, isGrid, ShareTargetFilters.fromPackages(appsFilter, toExclude));
+    }
+
+    /**
+     * Returns a {@link BottomSheet} to be used as a share intent like {@link #createShareBottomSheet(Context, Intent, String, boolean, ShareTargetFilter)},
+     * without blocking the calling thread. See {@link #createShareBottomSheetAsync(Context, Intent, String, boolean, Set, Set)}
+     *
+     * @param context    App context
+     * @param intent     Intent to get apps for
+     * @param shareTitle The optional title for the share intent
+     * @param isGrid     If the share intent BottomSheet should be grid styled
+     * @param filter     If provided, share will be limited to the apps the filter accepts. This will be called from a background thread
+     * @return A {@link BottomSheet} that will load the apps that can handle the share intent. NULL will be returned if
+     * the context or intent are NULL
+     */
+    @Nullable
+    public static BottomSheet createShareBottomSheetAsync(Context context, Intent intent, String shareTitle, boolean isGrid, @Nullable ShareTargetFilter filter) {
+        if (intent == null) return null;
+        return createShareBottomSheetAsync(context, new Intent[]{intent}, shareTitle, isGrid, filter);
+    }
+
+    /**
+     * Returns a {@link BottomSheet} to be used as a share intent like {@link #createShareBottomSheet(Context, Intent[], String, boolean)},
+     * without blocking the calling thread. See {@link #createShareBottomSheetAsync(Context, Intent, String, boolean, Set, Set)}
+     *
+     * @param context    App context
+     * @param intents    Intents to get apps for, in order of preference
+     * @param shareTitle The optional title for the share intent
+     * @param isGrid     If the share intent BottomSheet should be grid styled
+     * @param filter     If provided, share will be limited to the apps the filter accepts. This will be called from a background thread
+     * @return A {@link BottomSheet} that will load the apps that can handle the share intents. NULL will be returned if
+     * the context or intents are NULL
+     */
+    @Nullable
+    public static BottomSheet createShareBottomSheetAsync(Context context, Intent[] intents, String shareTitle, boolean isGrid, @Nullable ShareTargetFilter filter) {
+        if (context == null || intents == null || intents.length == 0) return null;
+
+        ShareTargetLoader loader = new ShareTargetLoader(context, intents, filter);
+        loader.start();
+
+        Builder b = new Builder(context)
+                .setAppLoader(loader)
+                .setTitle(shareTitle);
+
+        if (isGrid) b.grid();
+        return b.create();
+    }
+
+    /**
+     * Returns a {@link BottomSheet} to be used as a share intent like {@link #createShareBottomSheet(Context, Intent, String, boolean)},
+     * without blocking the calling thread. See {@link #createShareBottomSheetAsync(Context, Intent, String, boolean, Set, Set)}
+     *
+     * @param context    App context
+     * @param intent     Intent to get apps for
+     * @param shareTitle The optional title for the share intent
+     * @param isGrid     If the share intent BottomSheet should be grid styled
+     * @return A {@link BottomSheet} that will load the apps that can handle the share intent. NULL will be returned if
+     * the context or intent are NULL
+     */
+    @Nullable
+    public static BottomSheet createShareBottomSheetAsync(Context context, Intent intent, String shareTitle, boolean isGrid) {
+        return createShareBottomSheetAsync(context, intent, shareTitle, isGrid, (ShareTargetFilter) null);
+    }
+
+    /**
+     * Resolves the apps that can handle a share intent ahead of time, once the calling thread is idle, so that a later
+     * call to {@link #createShareBottomSheet(Context, Intent, String)} or {@link #createShareBottomSheetAsync(Context, Intent, String, boolean)}
+     * with a matching intent can be shown without waiting on the PackageManager. Intents match when they share the same
+     * action, MIME type and categories.
+     *
+     * @param context App context
+     * @param intent  Intent to get apps for
+     * @return A {@link ShareTargetPrefetch} that can be used to cancel the prefetch. NULL will be returned if the context
+     * or intent are NULL
+     */
+    @Nullable
+    public static ShareTargetPrefetch prefetchShareTargets(Context context, Intent intent) {
+        return prefetchShareTargets(context, intent, false, null, ShareTargetPrefetch.DEFAULT_EXPIRATION);
+    }
+
+    /**
+     * Resolves the apps that can handle a share intent ahead of time. See {@link #prefetchShareTargets(Context, Intent)}
+     *
+     * @param context    App context
+     * @param intent     Intent to get apps for
+     * @param isGrid     If the share intent BottomSheet will be grid styled, used for loading icons at the correct size
+     * @param filter     If provided, only the apps the filter accepts will be loaded
+     * @param expiration Time in milliseconds the prefetch has to complete before it is abandoned
+     * @return A {@link ShareTargetPrefetch} that can be used to cancel the prefetch. NULL will be returned if the context
+     * or intent are NULL
+     */
+    @Nullable
+    public static ShareTargetPrefetch prefetchShareTargets(Context context, Intent intent, boolean isGrid, @Nullable ShareTargetFilter filter, long expiration) {
+        if (context == null || intent == null) return null;
+
+        ShareTargetPrefetch prefetch = new ShareTargetPrefetch(context, intent, isGrid, filter, expiration);
+        prefetch.start();
+        return prefetch;
+    }
+
+    /**
+     * Inflates the layout of a {@link BottomSheet} and its item views on a background thread, so a sheet later shown with
+     * the same context and style does not inflate them on the main thread. A preloaded layout is only used by one sheet,
+     * call this again to have it ready for the next one. Must be called from the main thread.
+     *
+     * @param context The context the {@link BottomSheet} will be created with, the item views are only reused by sheets
+     *                of the same context
+     * @param style   The style the {@link BottomSheet} will use
+     * @param isGrid  If the {@link BottomSheet} will be grid styled
+     */
+    public static void preload(Context context, @StyleRes int style, boolean isGrid) {
+        preload(context, style, isGrid, false);
+    }
+
+    /**
+     * Inflates the layout of a {@link BottomSheet} and its item views on a background thread. See {@link #preload(Context, int, boolean)}
+     *
+     * @param context   The context the {@link BottomSheet} will be created with
+     * @param style     The style the {@link BottomSheet} will use
+     * @param isGrid    If the {@link BottomSheet} will be grid styled
+     * @param flatItems If the {@link BottomSheet} will use {@link Builder#setFlatItems(boolean)}
+     */
+    public static void preload(Context context, @StyleRes int style, boolean isGrid, boolean flatItems) {
+        LayoutPreloader preloader = LayoutPreloader.get(context);
+        preloader.preloadSheet(context, style, R.layout.bottom_sheet_layout);
+        preloader.preloadItems(ItemViewPool.getItemContext(context, style), ItemViewPool.getItemLayout(isGrid, flatItems),
+                PRELOAD_ITEM_COUNT);
+    }
+
+    /**
+     * Inflates the layout of a message {@link BottomSheet} on a background thread. See {@link #preload(Context, int, boolean)}
+     *
+     * @param context The context the {@link BottomSheet} will be created with
+     * @param style   The style the {@link BottomSheet} will use
+     */
+    public static void preloadMessage(Context context, @StyleRes int style) {
+        LayoutPreloader.get(context).preloadSheet(context, style, R.layout.bottom_sheet_message_layout);
+    }
+
     /**
      * Builder factory used for creating {@link BottomSheet}
      */
@@ -581,8 +1725,14 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
 
         boolean isGrid = false;
 
+        boolean flatItems = false;
+
         List<MenuItem> menuItems;
 
+        BottomSheetDataSource dataSource;
+
+        int pageSize = PagedGridAdapter.DEFAULT_PAGE_SIZE;
+
         Context context;
 
         Resources resources;
@@ -593,12 +1743,24 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
 
         Intent shareIntent;
 
+        ShareTargetLoader appLoader;
+
+        List<ResolveInfo> moreApps;
+
+        Map<ComponentName, Intent> shareIntents;
+
         @Nullable
         View view;
 
         @Nullable
         Drawable icon;
 
+        @DrawableRes
+        int iconRes;
+
+        @Nullable
+        Resources.Theme iconTheme;
+
         String message;
 
         String neutralBtn;
@@ -659,6 +1821,18 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
             return this;
         }
 
+        /**
+         * Sets if each option is rendered by a single {@link FlatItemView} drawing its icon and title, rather than a
+         * layout with an icon and a text view. This reduces the number of views for large grids
+         *
+         * @param flatItems
+         * @return
+         */
+        public Builder setFlatItems(boolean flatItems) {
+            this.flatItems = flatItems;
+            return this;
+        }
+
         /**
          * Sets whether the {@link BottomSheet} is cancelable with the {@link KeyEvent#KEYCODE_BACK BACK} key.
          *
@@ -709,9 +1883,8 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
          * @return
          */
         public Builder setSheet(@MenuRes int sheetItems) {
-            BottomSheetMenu menu = new BottomSheetMenu(context);
-            new MenuInflater(context).inflate(sheetItems, menu);
-            return setMenu(menu);
+            // Parsed once per configuration, every sheet gets its own items
+            return setMenu(MenuTemplateCache.get(context).inflate(context, sheetItems));
         }
 
         /**
@@ -745,6 +1918,30 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
             return this;
         }
 
+        /**
+         * Sets the {@link BottomSheetDataSource} supplying the items of the {@link BottomSheet} on demand. Use this instead
+         * of {@link #setMenuItems(List)} when there are too many items to create them all up front
+         *
+         * @param dataSource
+         * @return
+         */
+        public Builder setDataSource(@Nullable BottomSheetDataSource dataSource) {
+            return setDataSource(dataSource, PagedGridAdapter.DEFAULT_PAGE_SIZE);
+        }
+
+        /**
+         * Sets the {@link BottomSheetDataSource} supplying the items of the {@link BottomSheet} on demand
+         *
+         * @param dataSource
+         * @param pageSize   The number of items loaded at a time
+         * @return
+         */
+        public Builder setDataSource(@Nullable BottomSheetDataSource dataSource, int pageSize) {
+            this.dataSource = dataSource;
+            this.pageSize = pageSize;
+            return this;
+        }
+
         /**
          * Adds a {@link MenuItem} to the {@link BottomSheet}. For creating a {@link MenuItem}, see {@link BottomSheetMenuItem}
          *
@@ -787,6 +1984,8 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
          */
         public Builder setIcon(Drawable icon) {
             this.icon = icon;
+            iconRes = 0;
+            iconTheme = null;
             return this;
         }
 
@@ -799,15 +1998,29 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
          * @return
          */
         public Builder setIcon(@DrawableRes int icon, @Nullable Resources.Theme theme) {
-            Drawable dr;
+            // Loaded when the sheet is created
+            this.icon = null;
+            iconRes = icon;
+            iconTheme = theme;
+            return this;
+        }
 
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                dr = resources.getDrawable(icon, theme);
-            } else {
-                dr = resources.getDrawable(icon);
+        /**
+         * Returns the icon of the message, loading it if it was set as a resource
+         *
+         * @return
+         */
+        @Nullable
+        Drawable getIcon() {
+            if (icon == null && iconRes != 0) {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                    icon = resources.getDrawable(iconRes, iconTheme);
+                } else {
+                    icon = resources.getDrawable(iconRes);
+                }
             }
 
-            return setIcon(dr);
+            return icon;
         }
 
         /**
@@ -937,6 +2150,44 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
             return this;
         }
 
+        /**
+         * Sets the intent each app should launch when a share intent was created for multiple intents. This is not a public facing method.<p>
+         * See {@link BottomSheet#createShareBottomSheet(Context, Intent[], String, boolean)}
+         *
+         * @param shareIntents The intent to launch keyed by the app's {@link ComponentName}
+         * @return
+         */
+        private Builder setShareIntents(@Nullable Map<ComponentName, Intent> shareIntents) {
+            this.shareIntents = shareIntents;
+            return this;
+        }
+
+        /**
+         * Sets the apps that will be loaded once the "More" item of a share intent is selected. This is not a public facing method.<p>
+         * See {@link BottomSheet#createShareBottomSheet(Context, Intent, String, boolean, ShareTargetFilter, int)}
+         *
+         * @param moreApps The apps to load once expanded
+         * @return
+         */
+        private Builder setMoreApps(@Nullable List<ResolveInfo> moreApps) {
+            this.moreApps = moreApps;
+            return this;
+        }
+
+        /**
+         * Sets the loader that will resolve the apps for a share intent asynchronously. This is not a public facing method.<p>
+         * See {@link BottomSheet#createShareBottomSheetAsync(Context, Intent, String, boolean)} for creating an asynchronous share intent {@link BottomSheet}
+         *
+         * @param loader The {@link ShareTargetLoader} resolving the apps
+         * @return
+         */
+        private Builder setAppLoader(ShareTargetLoader loader) {
+            this.apps = new ArrayList<>();
+            this.appLoader = loader;
+            shareIntent = loader.getIntent();
+            return this;
+        }
+
         /**
          * Creates the {@link BottomSheet} but does not show it.
          *
@@ -946,6 +2197,20 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
             return new BottomSheet(context, this);
         }
 
+        /**
+         * Creates the {@link BottomSheet} and builds its layout ahead of time, such as when the view showing it is first
+         * pressed. The layout is inflated, bound and measured on the next message of the main thread, so
+         * {@link BottomSheet#show()} only has to attach it. Call {@link BottomSheet#release()} if the sheet will not be
+         * shown after all, a sheet that is not shown within a few seconds is released on its own.
+         *
+         * @return
+         */
+        public BottomSheet prepare() {
+            BottomSheet sheet = create();
+            sheet.prepare();
+            return sheet;
+        }
+
         /**
          * Creates the {@link BottomSheet} and shows it.
          */
@@ -956,6 +2221,11 @@ public class BottomSheet extends Dialog implements AdapterView.OnItemClickListen
 
     private static class Compat {
         public static void setTextAppearance(@NonNull TextView tv, @StyleRes int textAppearance) {
+            // Views of a rebound sheet usually have the appearance already
+            Object applied = tv.getTag(R.id.bottom_sheet_text_appearance_key);
+            if (applied instanceof Integer && (Integer) applied == textAppearance) return;
+            tv.setTag(R.id.bottom_sheet_text_appearance_key, textAppearance);
+
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
                 tv.setTextAppearance(textAppearance);
             } else {
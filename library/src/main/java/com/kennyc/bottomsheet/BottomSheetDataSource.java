@@ -0,0 +1,32 @@
+package com.kennyc.bottomsheet;
+
+import android.support.annotation.NonNull;
+import android.view.MenuItem;
+
+import java.util.List;
+
+/**
+ * Supplies the items of a {@link BottomSheet} on demand, for sheets with too many items to create them all up front.
+ * Items are requested a page at a time as they are scrolled into view. Rows that have not been loaded yet are shown as
+ * placeholders, and pages far from the visible rows are evicted so only a few pages are kept in memory.<p>
+ * For creating a {@link MenuItem}, see {@link com.kennyc.bottomsheet.menu.BottomSheetMenuItem}
+ */
+public interface BottomSheetDataSource {
+
+    /**
+     * Returns the total number of items. This is called from the main thread and should not block
+     *
+     * @return
+     */
+    int getCount();
+
+    /**
+     * Loads a range of items. This is called from a background thread.
+     *
+     * @param start The position of the first item to load
+     * @param count The number of items to load
+     * @return The items of the range, in order
+     */
+    @NonNull
+    List<MenuItem> loadRange(int start, int count);
+}
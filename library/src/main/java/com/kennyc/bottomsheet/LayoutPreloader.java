@@ -0,0 +1,254 @@
+package com.kennyc.bottomsheet;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.res.Configuration;
+import android.os.Bundle;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.StyleRes;
+import android.support.v4.view.AsyncLayoutInflater;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.GridView;
+
+import com.kennyc.bottomsheet.adapters.ItemViewPool;
+import com.kennyc.bottomsheet.adapters.TextMeasurer;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Inflates the layouts of a {@link BottomSheet} on a background thread ahead of time, so showing a sheet does not inflate
+ * any XML on the main thread. Layouts are inflated with the themed context of
+ * {@link ItemViewPool#getItemContext(Context, int)}, so they get the theme of the Activity the sheet will be shown in.
+ * Sheet layouts are kept per context until a sheet takes them, or until their Activity is destroyed. Item views are
+ * handed to the {@link ItemViewPool}. All methods must be called from the main thread.
+ */
+class LayoutPreloader {
+    private static LayoutPreloader sInstance;
+
+    private final Context mContext;
+
+    // Sheet layouts keyed by the themed context they were inflated with and their layout
+    private final Map<Context, SparseArray<View>> mSheets = new HashMap<>();
+
+    private final Map<Context, SparseBooleanArray> mPending = new HashMap<>();
+
+    // Item views being inflated, keyed by the context they are inflated with and their layout
+    private final Map<Context, SparseArray<Integer>> mPendingItems = new HashMap<>();
+
+    // Only used for generating the LayoutParams of the item views
+    private GridView mItemParent;
+
+    private LayoutPreloader(Context context) {
+        mContext = context;
+        mContext.registerComponentCallbacks(new ComponentCallbacks() {
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+                // Views inflated for the previous configuration may use the wrong resources
+                clear();
+                ItemViewPool.clear();
+            }
+
+            @Override
+            public void onLowMemory() {
+                clear();
+                ItemViewPool.clear();
+                TextMeasurer.clear();
+            }
+        });
+
+        if (mContext instanceof Application) {
+            ((Application) mContext).registerActivityLifecycleCallbacks(new LifecycleCallbacks());
+        }
+    }
+
+    static synchronized LayoutPreloader get(Context context) {
+        if (sInstance == null) sInstance = new LayoutPreloader(context.getApplicationContext());
+        return sInstance;
+    }
+
+    /**
+     * Inflates a sheet layout in the background if one is not already available
+     *
+     * @param context   The context the {@link BottomSheet} will be created with
+     * @param style     The style of the {@link BottomSheet}
+     * @param layoutRes The layout of the sheet
+     */
+    void preloadSheet(@NonNull Context context, @StyleRes int style, @LayoutRes int layoutRes) {
+        final Context themedContext = ItemViewPool.getItemContext(context, style);
+        SparseArray<View> sheets = mSheets.get(themedContext);
+        if (sheets != null && sheets.get(layoutRes) != null) return;
+
+        SparseBooleanArray pending = mPending.get(themedContext);
+
+        if (pending == null) {
+            pending = new SparseBooleanArray();
+            mPending.put(themedContext, pending);
+        } else if (pending.get(layoutRes)) {
+            return;
+        }
+
+        pending.put(layoutRes, true);
+
+        new AsyncLayoutInflater(themedContext).inflate(layoutRes, null, new AsyncLayoutInflater.OnInflateFinishedListener() {
+            @Override
+            public void onInflateFinished(@NonNull View view, int resid, @Nullable ViewGroup parent) {
+                onSheetInflated(themedContext, resid, view);
+            }
+        });
+    }
+
+    /**
+     * Inflates item views in the background until the {@link ItemViewPool} holds the given number of them
+     *
+     * @param itemContext The context to inflate the items with, see {@link ItemViewPool#getItemContext(Context, int)}
+     * @param layoutRes   The layout of the items
+     * @param count       The number of item views to have available
+     */
+    void preloadItems(@NonNull final Context itemContext, @LayoutRes final int layoutRes, int count) {
+        SparseArray<Integer> pendingItems = mPendingItems.get(itemContext);
+        int pending = pendingItems != null ? pendingItems.get(layoutRes, 0) : 0;
+        int needed = count - ItemViewPool.size(itemContext, layoutRes) - pending;
+        if (needed <= 0) return;
+
+        if (pendingItems == null) {
+            pendingItems = new SparseArray<>();
+            mPendingItems.put(itemContext, pendingItems);
+        }
+
+        if (mItemParent == null) mItemParent = new GridView(mContext);
+        pendingItems.put(layoutRes, pending + needed);
+        AsyncLayoutInflater inflater = new AsyncLayoutInflater(itemContext);
+
+        for (int i = 0; i < needed; i++) {
+            inflater.inflate(layoutRes, mItemParent, new AsyncLayoutInflater.OnInflateFinishedListener() {
+                @Override
+                public void onInflateFinished(@NonNull View view, int resid, @Nullable ViewGroup parent) {
+                    onItemInflated(itemContext, layoutRes);
+                    ItemViewPool.offer(view, itemContext, layoutRes);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns a preloaded sheet layout, removing it from the preloader
+     *
+     * @param themedContext The themed context of the {@link BottomSheet}, see {@link ItemViewPool#getItemContext(Context, int)}
+     * @param layoutRes     The layout of the sheet
+     * @return The inflated layout, null if one has not been preloaded
+     */
+    @Nullable
+    View takeSheet(@NonNull Context themedContext, @LayoutRes int layoutRes) {
+        SparseArray<View> sheets = mSheets.get(themedContext);
+        if (sheets == null) return null;
+
+        View view = sheets.get(layoutRes);
+        sheets.remove(layoutRes);
+        if (sheets.size() == 0) mSheets.remove(themedContext);
+        return view;
+    }
+
+    private void onSheetInflated(Context themedContext, @LayoutRes int layoutRes, View view) {
+        SparseBooleanArray pending = mPending.get(themedContext);
+        // Cleared while inflating
+        if (pending == null || !pending.get(layoutRes)) return;
+
+        pending.delete(layoutRes);
+        if (pending.size() == 0) mPending.remove(themedContext);
+
+        SparseArray<View> sheets = mSheets.get(themedContext);
+
+        if (sheets == null) {
+            sheets = new SparseArray<>();
+            mSheets.put(themedContext, sheets);
+        }
+
+        sheets.put(layoutRes, view);
+    }
+
+    private void onItemInflated(Context itemContext, @LayoutRes int layoutRes) {
+        SparseArray<Integer> pendingItems = mPendingItems.get(itemContext);
+        if (pendingItems == null) return;
+
+        int pending = pendingItems.get(layoutRes, 0) - 1;
+
+        if (pending > 0) {
+            pendingItems.put(layoutRes, pending);
+        } else {
+            pendingItems.remove(layoutRes);
+            if (pendingItems.size() == 0) mPendingItems.remove(itemContext);
+        }
+    }
+
+    /**
+     * Drops every preloaded sheet layout, such as after a configuration change
+     */
+    void clear() {
+        mSheets.clear();
+        mPending.clear();
+    }
+
+    /**
+     * Drops the layouts inflated for a destroyed Activity
+     *
+     * @param activity The destroyed Activity
+     */
+    private void remove(Activity activity) {
+        removeContexts(mSheets.keySet().iterator(), activity);
+        removeContexts(mPending.keySet().iterator(), activity);
+        removeContexts(mPendingItems.keySet().iterator(), activity);
+    }
+
+    private static void removeContexts(Iterator<Context> iterator, Activity activity) {
+        while (iterator.hasNext()) {
+            Context context = iterator.next();
+
+            while (context != null && context != activity) {
+                context = context instanceof ContextWrapper ? ((ContextWrapper) context).getBaseContext() : null;
+            }
+
+            if (context != null) iterator.remove();
+        }
+    }
+
+    private class LifecycleCallbacks implements Application.ActivityLifecycleCallbacks {
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+            remove(activity);
+        }
+    }
+}
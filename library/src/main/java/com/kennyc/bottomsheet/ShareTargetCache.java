@@ -0,0 +1,680 @@
+package com.kennyc.bottomsheet;
+
+import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.SparseBooleanArray;
+
+import com.kennyc.bottomsheet.adapters.AppAdapter;
+import com.kennyc.bottomsheet.adapters.AppIconLoader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Process wide cache of the apps that can handle a share {@link Intent}. Queries are keyed by the action, MIME type and
+ * categories of the {@link Intent}, where the loaded label of each app is keyed by its {@link ComponentName}.
+ * The cache is invalidated when a package is added, removed or changed, and the labels are dropped when the locale changes.<p>
+ * The cache is backed by a {@link ShareTargetDiskCache} so it survives process restarts. Entries restored from disk are
+ * used immediately and revalidated in the background against the PackageManager. Until then they only have a
+ * placeholder {@link ResolveInfo}, which is never handed to a {@link ShareTargetFilter} that may read more than its
+ * component, and their icons are only loaded from disk. Apps found to be uninstalled by then are reported to the
+ * registered {@link Listener}s.
+ */
+class ShareTargetCache {
+    private static ShareTargetCache sInstance;
+
+    private final PackageManager mManager;
+
+    private final AppIconLoader mIconLoader;
+
+    private final ShareTargetDiskCache mDiskCache;
+
+    private final int[] mIconSizes;
+
+    private final Map<String, List<ResolveInfo>> mQueries = new HashMap<>();
+
+    private final Map<ComponentName, AppAdapter.AppInfo> mApps = new HashMap<>();
+
+    private final Map<String, List<ComponentName>> mDiskQueries = new HashMap<>();
+
+    private final Map<ComponentName, ShareTargetDiskCache.Entry> mDiskApps = new HashMap<>();
+
+    // The sizes of the icons stored on disk for each app
+    private final Map<ComponentName, SparseBooleanArray> mDiskIcons = new HashMap<>();
+
+    // Keys of the queries that were restored from disk and not refreshed yet
+    private final Set<String> mRestoredQueries = new HashSet<>();
+
+    // The ResolveInfos created for components restored from disk
+    private final Set<ResolveInfo> mPlaceholders = Collections.newSetFromMap(new WeakHashMap<ResolveInfo, Boolean>());
+
+    // Packages of apps restored from disk that turned out to be uninstalled
+    private final Set<String> mRemovedPackages = new HashSet<>();
+
+    // Only accessed from the main thread
+    private final List<Listener> mListeners = new ArrayList<>();
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private boolean mDiskLoaded = false;
+
+    private boolean mPersistScheduled = false;
+
+    // The locale the cached labels were loaded in
+    private String mLocale;
+
+    private final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Uri data = intent.getData();
+            String packageName = data != null ? data.getSchemeSpecificPart() : null;
+            invalidate(packageName);
+            mIconLoader.invalidate(packageName);
+        }
+    };
+
+    private final Runnable mPersistRunnable = new Runnable() {
+        @Override
+        public void run() {
+            persist();
+        }
+    };
+
+    private final AppIconLoader.IconSource mIconSource = new AppIconLoader.IconSource() {
+        @Nullable
+        @Override
+        public Bitmap loadIcon(@NonNull AppAdapter.AppInfo appInfo, int size) {
+            ComponentName component = new ComponentName(appInfo.packageName, appInfo.name);
+
+            synchronized (ShareTargetCache.this) {
+                SparseBooleanArray sizes = mDiskIcons.get(component);
+                if (sizes == null || !sizes.get(size)) return null;
+            }
+
+            return mDiskCache.readIcon(component, size);
+        }
+    };
+
+    private ShareTargetCache(Context context) {
+        mManager = context.getPackageManager();
+        mIconLoader = AppIconLoader.get(context);
+        mDiskCache = new ShareTargetDiskCache(context);
+        mIconLoader.setIconSource(mIconSource);
+        mIconSizes = new int[]{
+                context.getResources().getDimensionPixelSize(R.dimen.bottom_sheet_list_icon_size),
+                context.getResources().getDimensionPixelSize(R.dimen.bottom_sheet_grid_icon_size)
+        };
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addDataScheme("package");
+        context.registerReceiver(mPackageReceiver, filter);
+
+        mLocale = getLocale(context.getResources().getConfiguration());
+        context.registerComponentCallbacks(new ComponentCallbacks() {
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+                onLocaleChanged(getLocale(newConfig));
+            }
+
+            @Override
+            public void onLowMemory() {
+                // Labels are small, the icons are freed by the AppIconLoader
+            }
+        });
+    }
+
+    /**
+     * Returns the process wide {@link ShareTargetCache}
+     *
+     * @param context Any context, the application context will be used
+     * @return
+     */
+    static synchronized ShareTargetCache get(Context context) {
+        if (sInstance == null) sInstance = new ShareTargetCache(context.getApplicationContext());
+        return sInstance;
+    }
+
+    /**
+     * Returns the activities that can handle the given {@link Intent}, only querying the {@link PackageManager} if
+     * the result is not already cached
+     *
+     * @param intent            The {@link Intent} to query
+     * @param allowPlaceholders If the result may be restored from disk, containing placeholder {@link ResolveInfo}s that
+     *                          only hold the component of each activity
+     * @return An unmodifiable list of the activities that can handle the intent
+     */
+    @NonNull
+    List<ResolveInfo> queryIntentActivities(Intent intent, boolean allowPlaceholders) {
+        String key = getKey(intent);
+
+        synchronized (this) {
+            List<ResolveInfo> cached = mQueries.get(key);
+            if (cached != null && (allowPlaceholders || !mRestoredQueries.contains(key))) return cached;
+
+            ensureDiskLoaded();
+            List<ComponentName> components = mDiskQueries.remove(key);
+
+            if (components != null && allowPlaceholders) {
+                // Use what was persisted for now, and check the PackageManager in the background
+                List<ResolveInfo> restored = new ArrayList<>(components.size());
+
+                for (ComponentName component : components) {
+                    ResolveInfo resolveInfo = createResolveInfo(component);
+                    mPlaceholders.add(resolveInfo);
+                    restored.add(resolveInfo);
+                }
+
+                List<ResolveInfo> result = Collections.unmodifiableList(restored);
+                mQueries.put(key, result);
+                mRestoredQueries.add(key);
+                scheduleRefresh(new Intent(intent), key, components);
+                return result;
+            }
+        }
+
+        List<ResolveInfo> result = query(intent);
+
+        synchronized (this) {
+            onQueried(key, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the {@link AppAdapter.AppInfo} for the given {@link ResolveInfo}, only loading its label if it is not
+     * already cached. The icon is loaded by the {@link AppIconLoader} once it is displayed
+     *
+     * @param resolveInfo The {@link ResolveInfo} to load
+     * @return
+     */
+    @NonNull
+    AppAdapter.AppInfo loadAppInfo(ResolveInfo resolveInfo) {
+        ComponentName component = ShareTargetFilters.getComponentName(resolveInfo);
+        String locale;
+        boolean placeholder;
+
+        synchronized (this) {
+            locale = mLocale;
+            placeholder = mPlaceholders.contains(resolveInfo);
+            AppAdapter.AppInfo cached = mApps.get(component);
+
+            if (cached != null) {
+                if (!placeholder) attach(cached, resolveInfo);
+                return cached;
+            }
+
+            ensureDiskLoaded();
+            ShareTargetDiskCache.Entry entry = mDiskApps.remove(component);
+
+            if (entry != null) {
+                // Without a ResolveInfo the AppIconLoader only loads the icons stored on disk
+                AppAdapter.AppInfo appInfo = new AppAdapter.AppInfo(entry.title, entry.packageName, entry.name, null,
+                        placeholder ? null : resolveInfo);
+
+                mApps.put(component, appInfo);
+                return appInfo;
+            }
+        }
+
+        String title = placeholder ? loadLabel(component) : resolveInfo.loadLabel(mManager).toString();
+        AppAdapter.AppInfo appInfo = new AppAdapter.AppInfo(title, component.getPackageName(), component.getClassName(), null,
+                placeholder ? null : resolveInfo);
+
+        synchronized (this) {
+            // The locale changed while the label was loading
+            if (locale.equals(mLocale)) {
+                mApps.put(component, appInfo);
+                schedulePersist();
+            }
+        }
+
+        return appInfo;
+    }
+
+    /**
+     * Returns if the share target belongs to a package that was restored from disk but is no longer installed
+     *
+     * @param resolveInfo The share target
+     * @return
+     */
+    synchronized boolean isRemoved(ResolveInfo resolveInfo) {
+        return !mRemovedPackages.isEmpty()
+                && mRemovedPackages.contains(ShareTargetFilters.getComponentName(resolveInfo).getPackageName());
+    }
+
+    /**
+     * Returns the packages of apps restored from disk that are no longer installed
+     *
+     * @return
+     */
+    synchronized Set<String> getRemovedPackages() {
+        return new HashSet<>(mRemovedPackages);
+    }
+
+    /**
+     * Registers a {@link Listener} to be told about uninstalled apps. Must be called from the main thread.
+     *
+     * @param listener
+     */
+    void addListener(Listener listener) {
+        if (!mListeners.contains(listener)) mListeners.add(listener);
+    }
+
+    /**
+     * Unregisters a {@link Listener}. Must be called from the main thread.
+     *
+     * @param listener
+     */
+    void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Clears the cached queries along with any apps belonging to the given package
+     *
+     * @param packageName The package that was changed, NULL to clear every app
+     */
+    synchronized void invalidate(@Nullable String packageName) {
+        // Any query may now match a different set of activities
+        mQueries.clear();
+        mDiskQueries.clear();
+
+        mRestoredQueries.clear();
+
+        if (packageName == null) {
+            mApps.clear();
+            mDiskApps.clear();
+            mDiskIcons.clear();
+            mRemovedPackages.clear();
+        } else {
+            removePackage(packageName);
+            // Installed again
+            mRemovedPackages.remove(packageName);
+        }
+
+        schedulePersist();
+    }
+
+    /**
+     * Drops the labels of every app if they were loaded in another locale. The queries stay valid.
+     *
+     * @param locale The current locale
+     */
+    private synchronized void onLocaleChanged(String locale) {
+        if (locale.equals(mLocale)) return;
+
+        mLocale = locale;
+        mApps.clear();
+        mDiskApps.clear();
+        schedulePersist();
+    }
+
+    /**
+     * Schedules the cache to be written to disk, picking up any icons that have been loaded since it was last written
+     */
+    synchronized void flush() {
+        schedulePersist();
+    }
+
+    private List<ResolveInfo> query(Intent intent) {
+        List<ResolveInfo> apps = mManager.queryIntentActivities(intent, 0);
+        return apps != null ? Collections.unmodifiableList(new ArrayList<>(apps)) : Collections.<ResolveInfo>emptyList();
+    }
+
+    private void removePackage(String packageName) {
+        removePackage(mApps.keySet(), packageName);
+        removePackage(mDiskApps.keySet(), packageName);
+        removePackage(mDiskIcons.keySet(), packageName);
+    }
+
+    private static void removePackage(Set<ComponentName> components, String packageName) {
+        Iterator<ComponentName> iterator = components.iterator();
+
+        while (iterator.hasNext()) {
+            if (packageName.equals(iterator.next().getPackageName())) iterator.remove();
+        }
+    }
+
+    /**
+     * Stores the result of querying the PackageManager. Must be called while holding the lock.
+     */
+    private void onQueried(String key, List<ResolveInfo> result) {
+        mQueries.put(key, result);
+        mRestoredQueries.remove(key);
+
+        // Apps restored from disk only had a placeholder ResolveInfo, swap in the real one
+        for (ResolveInfo resolveInfo : result) {
+            AppAdapter.AppInfo appInfo = mApps.get(ShareTargetFilters.getComponentName(resolveInfo));
+            if (appInfo != null) attach(appInfo, resolveInfo);
+        }
+
+        schedulePersist();
+    }
+
+    /**
+     * Sets the real {@link ResolveInfo} of an app restored from disk. Must be called while holding the lock.
+     */
+    private void attach(AppAdapter.AppInfo appInfo, ResolveInfo resolveInfo) {
+        if (appInfo.resolveInfo != null) return;
+
+        appInfo.resolveInfo = resolveInfo;
+        // Icons cached while only the placeholder was known are loaded from the real ResolveInfo from now on
+        mIconLoader.invalidate(appInfo);
+    }
+
+    /**
+     * Reads the index of the disk cache the first time it is needed, the icons are read once they are displayed. Must be
+     * called while holding the lock.
+     */
+    private void ensureDiskLoaded() {
+        if (mDiskLoaded) return;
+        mDiskLoaded = true;
+
+        ShareTargetDiskCache.Snapshot snapshot = mDiskCache.read(mLocale);
+        if (snapshot == null) return;
+
+        mDiskQueries.putAll(snapshot.queries);
+        mDiskApps.putAll(snapshot.apps);
+
+        for (Map.Entry<ComponentName, ShareTargetDiskCache.Entry> entry : snapshot.apps.entrySet()) {
+            mDiskIcons.put(entry.getKey(), entry.getValue().iconSizes);
+        }
+
+        if (!mDiskApps.isEmpty()) scheduleRevalidation(new ArrayList<>(mDiskApps.values()));
+    }
+
+    /**
+     * Queries the PackageManager in the background, replacing a query that was restored from disk
+     *
+     * @param restored The components the query was restored with
+     */
+    private void scheduleRefresh(final Intent intent, final String key, final List<ComponentName> restored) {
+        ShareTargetLoader.IDLE_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<ResolveInfo> result = query(intent);
+                Set<String> packages = new HashSet<>();
+
+                for (ResolveInfo resolveInfo : result) {
+                    packages.add(ShareTargetFilters.getComponentName(resolveInfo).getPackageName());
+                }
+
+                Set<String> removed = new HashSet<>();
+
+                for (ComponentName component : restored) {
+                    String packageName = component.getPackageName();
+                    // Still installed apps may just no longer handle the intent, they stay valid for other queries
+                    if (!packages.contains(packageName) && !removed.contains(packageName) && getPackageInfo(packageName) == null) {
+                        removed.add(packageName);
+                    }
+                }
+
+                synchronized (ShareTargetCache.this) {
+                    // Dropped by an invalidation while querying, or already refreshed by a filtered query
+                    if (mRestoredQueries.contains(key)) onQueried(key, result);
+                    onPackagesRemoved(removed);
+                }
+            }
+        });
+    }
+
+    /**
+     * Checks the apps restored from disk against their installed packages in the background, dropping any that are stale
+     */
+    private void scheduleRevalidation(final List<ShareTargetDiskCache.Entry> entries) {
+        ShareTargetLoader.IDLE_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                Set<String> stale = new HashSet<>();
+                Set<String> removed = new HashSet<>();
+                Set<String> checked = new HashSet<>();
+
+                for (ShareTargetDiskCache.Entry entry : entries) {
+                    if (!checked.add(entry.packageName)) continue;
+                    PackageInfo info = getPackageInfo(entry.packageName);
+
+                    if (info == null || info.versionCode != entry.versionCode || info.lastUpdateTime != entry.lastUpdateTime) {
+                        stale.add(entry.packageName);
+                        if (info == null) removed.add(entry.packageName);
+                    }
+                }
+
+                if (stale.isEmpty()) return;
+
+                synchronized (ShareTargetCache.this) {
+                    for (String packageName : stale) {
+                        removePackage(packageName);
+                        mIconLoader.invalidate(packageName);
+                    }
+
+                    onPackagesRemoved(removed);
+                    schedulePersist();
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops the uninstalled packages from the queries that were restored from disk and tells the {@link Listener}s about
+     * them. Must be called while holding the lock.
+     *
+     * @param packageNames The packages that are no longer installed
+     */
+    private void onPackagesRemoved(final Set<String> packageNames) {
+        packageNames.removeAll(mRemovedPackages);
+        if (packageNames.isEmpty()) return;
+
+        mRemovedPackages.addAll(packageNames);
+
+        for (String key : mRestoredQueries) {
+            List<ResolveInfo> restored = mQueries.get(key);
+            if (restored == null) continue;
+
+            List<ResolveInfo> installed = new ArrayList<>(restored.size());
+
+            for (ResolveInfo resolveInfo : restored) {
+                if (!packageNames.contains(ShareTargetFilters.getComponentName(resolveInfo).getPackageName())) {
+                    installed.add(resolveInfo);
+                }
+            }
+
+            mQueries.put(key, Collections.unmodifiableList(installed));
+        }
+
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (Listener listener : new ArrayList<>(mListeners)) {
+                    listener.onPackagesRemoved(packageNames);
+                }
+            }
+        });
+    }
+
+    /**
+     * Schedules the cache to be written to disk. Must be called while holding the lock.
+     */
+    private void schedulePersist() {
+        if (mPersistScheduled) return;
+        mPersistScheduled = true;
+        ShareTargetLoader.IDLE_EXECUTOR.execute(mPersistRunnable);
+    }
+
+    private void persist() {
+        Map<String, List<ResolveInfo>> queries;
+        List<AppAdapter.AppInfo> apps;
+        Map<ComponentName, SparseBooleanArray> diskIcons;
+        ShareTargetDiskCache.Snapshot snapshot = new ShareTargetDiskCache.Snapshot();
+
+        synchronized (this) {
+            mPersistScheduled = false;
+            queries = new HashMap<>(mQueries);
+            apps = new ArrayList<>(mApps.values());
+            diskIcons = new HashMap<>(mDiskIcons);
+            snapshot.locale = mLocale;
+            // Anything restored from disk that has not been used yet is kept as is
+            snapshot.queries.putAll(mDiskQueries);
+            snapshot.apps.putAll(mDiskApps);
+        }
+
+        for (Map.Entry<String, List<ResolveInfo>> query : queries.entrySet()) {
+            List<ComponentName> components = new ArrayList<>(query.getValue().size());
+
+            for (ResolveInfo resolveInfo : query.getValue()) {
+                components.add(ShareTargetFilters.getComponentName(resolveInfo));
+            }
+
+            snapshot.queries.put(query.getKey(), components);
+        }
+
+        Map<String, PackageInfo> packages = new HashMap<>();
+
+        for (AppAdapter.AppInfo appInfo : apps) {
+            if (!packages.containsKey(appInfo.packageName)) {
+                packages.put(appInfo.packageName, getPackageInfo(appInfo.packageName));
+            }
+
+            PackageInfo info = packages.get(appInfo.packageName);
+            if (info == null) continue;
+
+            ComponentName component = new ComponentName(appInfo.packageName, appInfo.name);
+            ShareTargetDiskCache.Entry entry = new ShareTargetDiskCache.Entry(appInfo.packageName, appInfo.name,
+                    appInfo.title, info.versionCode, info.lastUpdateTime);
+            SparseBooleanArray stored = diskIcons.get(component);
+
+            for (int size : mIconSizes) {
+                if (stored != null && stored.get(size)) {
+                    entry.iconSizes.put(size, true);
+                    continue;
+                }
+
+                Bitmap icon = mIconLoader.getCached(appInfo, size);
+                if (icon != null) entry.newIcons.put(size, icon);
+            }
+
+            snapshot.apps.put(component, entry);
+        }
+
+        mDiskCache.write(snapshot);
+
+        synchronized (this) {
+            for (Map.Entry<ComponentName, ShareTargetDiskCache.Entry> entry : snapshot.apps.entrySet()) {
+                // Skip apps that were invalidated while writing
+                if (mApps.containsKey(entry.getKey()) || mDiskApps.containsKey(entry.getKey())) {
+                    mDiskIcons.put(entry.getKey(), entry.getValue().iconSizes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the label of an app whose label was not restored along with its query, as the placeholder has none
+     */
+    private String loadLabel(ComponentName component) {
+        try {
+            return mManager.getActivityInfo(component, 0).loadLabel(mManager).toString();
+        } catch (PackageManager.NameNotFoundException e) {
+            // Removed since the query was persisted, the refresh will drop it
+            return component.getClassName();
+        }
+    }
+
+    @Nullable
+    private PackageInfo getPackageInfo(String packageName) {
+        try {
+            return mManager.getPackageInfo(packageName, 0);
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the locales of the configuration, which the labels of the apps are loaded in
+     *
+     * @param configuration
+     * @return
+     */
+    static String getLocale(Configuration configuration) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) return configuration.getLocales().toLanguageTags();
+        return String.valueOf(configuration.locale);
+    }
+
+    /**
+     * Creates a placeholder {@link ResolveInfo} for a component restored from disk, containing enough information for
+     * the filters of {@link ShareTargetFilters} that only read the component and for launching the share intent
+     */
+    private static ResolveInfo createResolveInfo(ComponentName component) {
+        ResolveInfo resolveInfo = new ResolveInfo();
+        resolveInfo.activityInfo = new ActivityInfo();
+        resolveInfo.activityInfo.packageName = component.getPackageName();
+        resolveInfo.activityInfo.name = component.getClassName();
+        resolveInfo.activityInfo.applicationInfo = new ApplicationInfo();
+        resolveInfo.activityInfo.applicationInfo.packageName = component.getPackageName();
+        return resolveInfo;
+    }
+
+    /**
+     * Returns the cache key for an {@link Intent}, comprised of its action, MIME type, data scheme and authority, the
+     * package or component it is restricted to and its categories
+     *
+     * @param intent
+     * @return
+     */
+    static String getKey(Intent intent) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(intent.getAction()).append('|').append(intent.getType());
+        Uri data = intent.getData();
+        sb.append('|').append(data != null ? data.getScheme() : null);
+        sb.append('|').append(data != null ? data.getEncodedAuthority() : null);
+        ComponentName component = intent.getComponent();
+        sb.append('|').append(intent.getPackage());
+        sb.append('|').append(component != null ? component.flattenToShortString() : null);
+        Set<String> categories = intent.getCategories();
+
+        if (categories != null && !categories.isEmpty()) {
+            List<String> sorted = new ArrayList<>(categories);
+            Collections.sort(sorted);
+            sb.append('|').append(TextUtils.join(",", sorted));
+        }
+
+        return sb.toString();
+    }
+
+    interface Listener {
+        /**
+         * Called on the main thread when apps that were restored from disk turn out to be uninstalled
+         *
+         * @param packageNames The packages that are no longer installed
+         */
+        void onPackagesRemoved(Set<String> packageNames);
+    }
+}
@@ -0,0 +1,302 @@
+package com.kennyc.bottomsheet;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.AtomicFile;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persists the resolved share targets of the {@link ShareTargetCache} to a binary index file, so the first share after
+ * the process starts does not need to query the PackageManager for every app. Apps are stored along with the version
+ * code and last update time of their package so stale entries can be detected, and the labels along with the locale
+ * they were loaded in. Rasterized icons are stored in files of their own and only decoded once they are displayed.
+ */
+class ShareTargetDiskCache {
+    private static final String TAG = ShareTargetDiskCache.class.getSimpleName();
+
+    private static final String FILE_NAME = "bottom_sheet_share_targets";
+
+    private static final String ICON_DIR_NAME = "bottom_sheet_share_icons";
+
+    private static final String ICON_SUFFIX = ".png";
+
+    private static final int MAGIC = 0x42534854;
+
+    private static final int VERSION = 3;
+
+    private final AtomicFile mFile;
+
+    private final File mIconDir;
+
+    ShareTargetDiskCache(Context context) {
+        mFile = new AtomicFile(new File(context.getCacheDir(), FILE_NAME));
+        mIconDir = new File(context.getCacheDir(), ICON_DIR_NAME);
+    }
+
+    /**
+     * Reads the index of the cache file, without any icons. This performs disk I/O.
+     *
+     * @param locale The current locale, apps whose labels were loaded in another locale are left out
+     * @return The cached targets, NULL if there is no cache or it could not be read
+     */
+    @Nullable
+    Snapshot read(@NonNull String locale) {
+        DataInputStream in = null;
+
+        try {
+            FileInputStream fis = mFile.openRead();
+            in = new DataInputStream(new BufferedInputStream(fis));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+
+            Snapshot snapshot = new Snapshot();
+            snapshot.locale = in.readUTF();
+            int queryCount = in.readInt();
+
+            for (int i = 0; i < queryCount; i++) {
+                String key = in.readUTF();
+                int componentCount = in.readInt();
+                List<ComponentName> components = new ArrayList<>(componentCount);
+
+                for (int j = 0; j < componentCount; j++) {
+                    components.add(new ComponentName(in.readUTF(), in.readUTF()));
+                }
+
+                snapshot.queries.put(key, components);
+            }
+
+            // The labels are stale, the queries are still valid
+            if (!locale.equals(snapshot.locale)) return snapshot;
+            int appCount = in.readInt();
+
+            for (int i = 0; i < appCount; i++) {
+                Entry entry = new Entry(in.readUTF(), in.readUTF(), in.readUTF(), in.readInt(), in.readLong());
+                int iconCount = in.readInt();
+
+                for (int j = 0; j < iconCount; j++) {
+                    entry.iconSizes.put(in.readInt(), true);
+                }
+
+                snapshot.apps.put(new ComponentName(entry.packageName, entry.name), entry);
+            }
+
+            return snapshot;
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to read share target cache", e);
+            mFile.delete();
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes an icon stored by {@link #write(Snapshot)}. This performs disk I/O.
+     *
+     * @param component The {@link ComponentName} of the app
+     * @param size      The size in pixels of the icon
+     * @return The icon, NULL if it is not stored or could not be read
+     */
+    @Nullable
+    Bitmap readIcon(@NonNull ComponentName component, int size) {
+        AtomicFile file = new AtomicFile(getIconFile(component, size));
+        FileInputStream in = null;
+
+        try {
+            in = file.openRead();
+            return BitmapFactory.decodeStream(new BufferedInputStream(in));
+        } catch (FileNotFoundException e) {
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the cache file with the given targets, writing the icons that are not stored yet and deleting the ones
+     * that are no longer used. This performs disk I/O.
+     *
+     * @param snapshot The targets to persist, the sizes of the icons that were written are added to their entries
+     */
+    void write(@NonNull Snapshot snapshot) {
+        for (Entry entry : snapshot.apps.values()) {
+            ComponentName component = new ComponentName(entry.packageName, entry.name);
+
+            for (int i = 0; i < entry.newIcons.size(); i++) {
+                if (writeIcon(component, entry.newIcons.keyAt(i), entry.newIcons.valueAt(i))) {
+                    entry.iconSizes.put(entry.newIcons.keyAt(i), true);
+                }
+            }
+        }
+
+        FileOutputStream fos = null;
+
+        try {
+            fos = mFile.startWrite();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(snapshot.locale);
+            out.writeInt(snapshot.queries.size());
+
+            for (Map.Entry<String, List<ComponentName>> query : snapshot.queries.entrySet()) {
+                out.writeUTF(query.getKey());
+                out.writeInt(query.getValue().size());
+
+                for (ComponentName component : query.getValue()) {
+                    out.writeUTF(component.getPackageName());
+                    out.writeUTF(component.getClassName());
+                }
+            }
+
+            out.writeInt(snapshot.apps.size());
+
+            for (Entry entry : snapshot.apps.values()) {
+                out.writeUTF(entry.packageName);
+                out.writeUTF(entry.name);
+                out.writeUTF(entry.title);
+                out.writeInt(entry.versionCode);
+                out.writeLong(entry.lastUpdateTime);
+                out.writeInt(entry.iconSizes.size());
+
+                for (int i = 0; i < entry.iconSizes.size(); i++) {
+                    out.writeInt(entry.iconSizes.keyAt(i));
+                }
+            }
+
+            out.flush();
+            mFile.finishWrite(fos);
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write share target cache", e);
+            if (fos != null) mFile.failWrite(fos);
+            return;
+        }
+
+        deleteUnusedIcons(snapshot);
+    }
+
+    private boolean writeIcon(ComponentName component, int size, Bitmap icon) {
+        if (!mIconDir.isDirectory() && !mIconDir.mkdirs()) return false;
+
+        AtomicFile file = new AtomicFile(getIconFile(component, size));
+        FileOutputStream fos = null;
+
+        try {
+            fos = file.startWrite();
+            BufferedOutputStream out = new BufferedOutputStream(fos);
+            icon.compress(Bitmap.CompressFormat.PNG, 100, out);
+            out.flush();
+            file.finishWrite(fos);
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write share target icon", e);
+            if (fos != null) file.failWrite(fos);
+            return false;
+        }
+    }
+
+    private void deleteUnusedIcons(Snapshot snapshot) {
+        File[] files = mIconDir.listFiles();
+        if (files == null) return;
+
+        Set<String> used = new HashSet<>();
+
+        for (Entry entry : snapshot.apps.values()) {
+            ComponentName component = new ComponentName(entry.packageName, entry.name);
+
+            for (int i = 0; i < entry.iconSizes.size(); i++) {
+                used.add(getIconFile(component, entry.iconSizes.keyAt(i)).getName());
+            }
+        }
+
+        for (File file : files) {
+            if (!used.contains(file.getName())) file.delete();
+        }
+    }
+
+    private File getIconFile(ComponentName component, int size) {
+        return new File(mIconDir, component.getPackageName() + "+" + component.getClassName() + "@" + size + ICON_SUFFIX);
+    }
+
+    /**
+     * The contents of the cache file
+     */
+    static class Snapshot {
+        /**
+         * The locale the labels of the apps were loaded in
+         */
+        String locale = "";
+
+        final Map<String, List<ComponentName>> queries = new HashMap<>();
+
+        final Map<ComponentName, Entry> apps = new HashMap<>();
+    }
+
+    /**
+     * A single cached app, keyed by its package name along with the version code and last update time of the package
+     */
+    static class Entry {
+        final String packageName;
+
+        final String name;
+
+        final String title;
+
+        final int versionCode;
+
+        final long lastUpdateTime;
+
+        /**
+         * The sizes in pixels of the icons that are stored
+         */
+        final SparseBooleanArray iconSizes = new SparseBooleanArray();
+
+        /**
+         * Rasterized icons keyed by their size in pixels, written along with the entry when not stored yet
+         */
+        final SparseArray<Bitmap> newIcons = new SparseArray<>();
+
+        Entry(String packageName, String name, String title, int versionCode, long lastUpdateTime) {
+            this.packageName = packageName;
+            this.name = name;
+            this.title = title;
+            this.versionCode = versionCode;
+            this.lastUpdateTime = lastUpdateTime;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.kennyc.bottomsheet;
+
+import android.content.pm.ResolveInfo;
+import android.support.annotation.NonNull;
+
+/**
+ * Filter used when creating a share {@link BottomSheet} to decide which apps are shown. Filters are run against the raw
+ * {@link ResolveInfo} of each app before its label or icon are loaded, so rejected apps never pay for either. Filters
+ * other than the ones of {@link ShareTargetFilters} always receive the {@link ResolveInfo} from the PackageManager,
+ * never one restored from disk.<p>
+ * See {@link ShareTargetFilters} for common filters and for chaining filters together.
+ */
+public interface ShareTargetFilter {
+
+    /**
+     * Returns if the app should be shown in the share {@link BottomSheet}. This may be called from a background thread.
+     *
+     * @param resolveInfo The {@link ResolveInfo} of the app that can handle the share intent
+     * @return True if the app should be shown, false if it should be excluded
+     */
+    boolean accept(@NonNull ResolveInfo resolveInfo);
+}
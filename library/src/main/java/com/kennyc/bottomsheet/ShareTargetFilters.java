@@ -0,0 +1,182 @@
+package com.kennyc.bottomsheet;
+
+import android.content.ComponentName;
+import android.content.pm.ResolveInfo;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Factory methods for common {@link ShareTargetFilter}s
+ */
+public final class ShareTargetFilters {
+
+    private ShareTargetFilters() {
+        // No instances
+    }
+
+    /**
+     * Returns a {@link ShareTargetFilter} that only accepts apps contained in the given package names
+     *
+     * @param packageNames The package names to allow
+     * @return
+     */
+    public static ShareTargetFilter includePackages(@NonNull final Set<String> packageNames) {
+        return new ComponentFilter() {
+            @Override
+            public boolean accept(@NonNull ResolveInfo resolveInfo) {
+                return packageNames.contains(resolveInfo.activityInfo.packageName);
+            }
+        };
+    }
+
+    /**
+     * Returns a {@link ShareTargetFilter} that rejects any app contained in the given package names
+     *
+     * @param packageNames The package names to exclude
+     * @return
+     */
+    public static ShareTargetFilter excludePackages(@NonNull final Set<String> packageNames) {
+        return new ComponentFilter() {
+            @Override
+            public boolean accept(@NonNull ResolveInfo resolveInfo) {
+                return !packageNames.contains(resolveInfo.activityInfo.packageName);
+            }
+        };
+    }
+
+    /**
+     * Returns a {@link ShareTargetFilter} that only accepts the given activities
+     *
+     * @param components The {@link ComponentName}s of the activities to allow
+     * @return
+     */
+    public static ShareTargetFilter includeComponents(@NonNull final Set<ComponentName> components) {
+        return new ComponentFilter() {
+            @Override
+            public boolean accept(@NonNull ResolveInfo resolveInfo) {
+                return components.contains(getComponentName(resolveInfo));
+            }
+        };
+    }
+
+    /**
+     * Returns a {@link ShareTargetFilter} that rejects the given activities, leaving any other activities from the same
+     * packages untouched
+     *
+     * @param components The {@link ComponentName}s of the activities to exclude
+     * @return
+     */
+    public static ShareTargetFilter excludeComponents(@NonNull final Set<ComponentName> components) {
+        return new ComponentFilter() {
+            @Override
+            public boolean accept(@NonNull ResolveInfo resolveInfo) {
+                return !components.contains(getComponentName(resolveInfo));
+            }
+        };
+    }
+
+    /**
+     * Returns a {@link ShareTargetFilter} that only accepts an app if every one of the given filters accepts it.
+     * Filters are run in order, stopping at the first one that rejects the app. NULL filters are ignored.
+     *
+     * @param filters The filters to chain
+     * @return
+     */
+    public static ShareTargetFilter chain(@NonNull ShareTargetFilter... filters) {
+        List<ShareTargetFilter> chain = new ArrayList<>(filters.length);
+
+        for (ShareTargetFilter filter : filters) {
+            if (filter != null) chain.add(filter);
+        }
+
+        return new Chain(chain);
+    }
+
+    /**
+     * Returns a {@link ShareTargetFilter} equivalent to the package name sets accepted by
+     * {@link BottomSheet#createShareBottomSheet(android.content.Context, android.content.Intent, String, boolean, Set, Set)}
+     *
+     * @param appsFilter If provided, only the contained package names will be accepted
+     * @param toExclude  If provided, the contained package names will be rejected
+     * @return The filter, or NULL if neither set contains any package names
+     */
+    @Nullable
+    static ShareTargetFilter fromPackages(@Nullable Set<String> appsFilter, @Nullable Set<String> toExclude) {
+        boolean hasFilter = appsFilter != null && !appsFilter.isEmpty();
+        boolean hasExclude = toExclude != null && !toExclude.isEmpty();
+        if (!hasFilter && !hasExclude) return null;
+
+        return chain(hasFilter ? includePackages(appsFilter) : null, hasExclude ? excludePackages(toExclude) : null);
+    }
+
+    /**
+     * Returns the apps that are accepted by the filter, preserving their order
+     *
+     * @param apps   The apps to filter
+     * @param filter The filter to apply, NULL to accept every app
+     * @return
+     */
+    static List<ResolveInfo> apply(@NonNull Collection<ResolveInfo> apps, @Nullable ShareTargetFilter filter) {
+        if (filter == null) return new ArrayList<>(apps);
+        List<ResolveInfo> accepted = new ArrayList<>(apps.size());
+
+        for (ResolveInfo resolveInfo : apps) {
+            if (filter.accept(resolveInfo)) accepted.add(resolveInfo);
+        }
+
+        return accepted;
+    }
+
+    /**
+     * Returns if the filter only reads the component of an app, so it may be run against the placeholder
+     * {@link ResolveInfo}s of apps restored from disk
+     *
+     * @param filter The filter, NULL accepts every app
+     * @return
+     */
+    static boolean readsComponentOnly(@Nullable ShareTargetFilter filter) {
+        if (filter instanceof Chain) return ((Chain) filter).componentOnly;
+        return filter == null || filter instanceof ComponentFilter;
+    }
+
+    static ComponentName getComponentName(ResolveInfo resolveInfo) {
+        return new ComponentName(resolveInfo.activityInfo.packageName, resolveInfo.activityInfo.name);
+    }
+
+    /**
+     * Marks the filters that only read the package and activity name of an app
+     */
+    private interface ComponentFilter extends ShareTargetFilter {
+    }
+
+    private static class Chain implements ShareTargetFilter {
+        private final List<ShareTargetFilter> mFilters;
+
+        final boolean componentOnly;
+
+        Chain(List<ShareTargetFilter> filters) {
+            mFilters = filters;
+            boolean componentOnly = true;
+
+            for (int i = 0; i < filters.size(); i++) {
+                componentOnly &= readsComponentOnly(filters.get(i));
+            }
+
+            this.componentOnly = componentOnly;
+        }
+
+        @Override
+        public boolean accept(@NonNull ResolveInfo resolveInfo) {
+            for (int i = 0; i < mFilters.size(); i++) {
+                if (!mFilters.get(i).accept(resolveInfo)) return false;
+            }
+
+            return true;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.kennyc.bottomsheet;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ResolveInfo;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.kennyc.bottomsheet.adapters.AppAdapter;
+import com.kennyc.bottomsheet.adapters.BackgroundExecutor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Resolves the apps that can handle one or more share {@link Intent}s on a background thread using the
+ * {@link ShareTargetResolver} and {@link ShareTargetCache}, delivering them to the main thread in chunks as they are loaded. Results that arrive before a {@link Callback} is
+ * attached are buffered and replayed.
+ */
+class ShareTargetLoader implements Runnable {
+    private static final int CHUNK_SIZE = 8;
+
+    /**
+     * Background executor used for resolving the share targets of a sheet
+     */
+    static final Executor EXECUTOR = BackgroundExecutor.newSerialExecutor();
+
+    /**
+     * Background executor for maintenance nothing is waiting on, such as prefetching, revalidating and persisting the
+     * {@link ShareTargetCache}. It runs on a thread of its own at the lowest priority, so it does not take up the shared
+     * threads that load the icons and items of a showing sheet.
+     */
+    static final Executor IDLE_EXECUTOR = BackgroundExecutor.newThreadExecutor("BottomSheet-Idle", Process.THREAD_PRIORITY_LOWEST);
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private final Context mContext;
+
+    private final Intent[] mIntents;
+
+    private Map<ComponentName, Intent> mComponentIntents = new HashMap<>();
+
+    @Nullable
+    private final ShareTargetFilter mFilter;
+
+    @Nullable
+    private final List<ResolveInfo> mTargets;
+
+    // The targets resolved by run(), set before their count is delivered
+    @Nullable
+    private List<ResolveInfo> mResolved;
+
+    private final List<AppAdapter.AppInfo> mLoaded = new ArrayList<>();
+
+    // The number of targets that have been delivered or dropped
+    private int mPosition = 0;
+
+    // The number of targets that were dropped as their app is no longer installed
+    private int mDropped = 0;
+
+    private int mCount = -1;
+
+    private boolean mFinished = false;
+
+    private volatile boolean mCancelled = false;
+
+    @Nullable
+    private Callback mCallback;
+
+    ShareTargetLoader(Context context, Intent[] intents, @Nullable ShareTargetFilter filter) {
+        mContext = context.getApplicationContext();
+        mIntents = intents;
+        mFilter = filter;
+        mTargets = null;
+    }
+
+    /**
+     * Creates a loader for share targets that have already been resolved, only their labels and icons will be loaded
+     *
+     * @param context App context
+     * @param intent  The share intent the targets were resolved for
+     * @param targets The share targets to load
+     */
+    ShareTargetLoader(Context context, Intent intent, @NonNull List<ResolveInfo> targets) {
+        mContext = context.getApplicationContext();
+        mIntents = new Intent[]{intent};
+        mFilter = null;
+        mTargets = targets;
+    }
+
+    /**
+     * Starts resolving the share targets
+     */
+    void start() {
+        EXECUTOR.execute(this);
+    }
+
+    /**
+     * Stops any further loading, no more callbacks will be delivered
+     */
+    void cancel() {
+        mCancelled = true;
+        mCallback = null;
+    }
+
+    /**
+     * Returns if every share target has been delivered. Must be called from the main thread.
+     *
+     * @return
+     */
+    boolean isFinished() {
+        return mFinished;
+    }
+
+    /**
+     * Returns a new loader continuing where this one stopped, such as after it was cancelled. The share targets that have
+     * already been delivered are not loaded again, the new loader only delivers the remaining ones. It has to be started.
+     * Must be called from the main thread.
+     *
+     * @return
+     */
+    ShareTargetLoader resume() {
+        List<ResolveInfo> targets = mTargets != null ? mTargets : mResolved;
+
+        if (mCount < 0 || targets == null) {
+            // Nothing has been delivered yet, start over
+            return mTargets != null ? new ShareTargetLoader(mContext, mIntents[0], mTargets) : new ShareTargetLoader(mContext, mIntents, mFilter);
+        }
+
+        ShareTargetLoader loader = new ShareTargetLoader(mContext, mIntents[0], targets.subList(mPosition, targets.size()));
+        loader.mComponentIntents = mComponentIntents;
+        return loader;
+    }
+
+    /**
+     * Sets the {@link Callback} to receive results. Any results that have already been delivered are replayed immediately.
+     * Must be called from the main thread.
+     *
+     * @param callback The callback to receive results
+     */
+    void setCallback(@Nullable Callback callback) {
+        mCallback = callback;
+        if (callback == null || mCancelled) return;
+
+        if (mCount >= 0) callback.onTargetsQueried(mCount);
+        if (!mLoaded.isEmpty()) callback.onTargetsLoaded(new ArrayList<>(mLoaded));
+        if (mDropped > 0) callback.onTargetsDropped(mDropped);
+        if (mFinished) callback.onLoadFinished();
+    }
+
+    /**
+     * Returns the first {@link Intent} that is being resolved
+     *
+     * @return
+     */
+    Intent getIntent() {
+        return mIntents[0];
+    }
+
+    /**
+     * Returns the {@link Intent} the given share target matched. Must be called from the main thread.
+     *
+     * @param component The {@link ComponentName} of the share target
+     * @return
+     */
+    Intent getIntent(ComponentName component) {
+        Intent intent = mComponentIntents.get(component);
+        return intent != null ? intent : mIntents[0];
+    }
+
+    @Override
+    public void run() {
+        ShareTargetCache cache = ShareTargetCache.get(mContext);
+        List<ResolveInfo> targets;
+
+        if (mTargets != null) {
+            targets = mTargets;
+            deliverCount(targets.size(), null);
+        } else {
+            ShareTargetResolver.Result result = ShareTargetResolver.resolve(mContext, mIntents, mFilter);
+            targets = result.targets;
+            mResolved = targets;
+            deliverCount(targets.size(), result.intents);
+        }
+
+        List<AppAdapter.AppInfo> chunk = new ArrayList<>(CHUNK_SIZE);
+        int dropped = 0;
+
+        for (int i = 0; i < targets.size(); i++) {
+            if (mCancelled) return;
+            ResolveInfo resolveInfo = targets.get(i);
+
+            if (cache.isRemoved(resolveInfo)) {
+                // Restored from disk, but uninstalled since
+                dropped++;
+            } else {
+                chunk.add(cache.loadAppInfo(resolveInfo));
+            }
+
+            if (chunk.size() >= CHUNK_SIZE) {
+                deliverChunk(chunk, dropped, i + 1);
+                chunk = new ArrayList<>(CHUNK_SIZE);
+                dropped = 0;
+            }
+        }
+
+        if (!chunk.isEmpty() || dropped > 0) deliverChunk(chunk, dropped, targets.size());
+        deliverFinished();
+    }
+
+    private void deliverCount(final int count, @Nullable final Map<ComponentName, Intent> componentIntents) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mCancelled) return;
+                mCount = count;
+                if (componentIntents != null) mComponentIntents = componentIntents;
+                if (mCallback != null) mCallback.onTargetsQueried(count);
+            }
+        });
+    }
+
+    /**
+     * Delivers loaded share targets to the main thread
+     *
+     * @param chunk    The loaded share targets
+     * @param dropped  The number of share targets that were dropped along the way
+     * @param position The number of targets that have been handled once this chunk is delivered
+     */
+    private void deliverChunk(final List<AppAdapter.AppInfo> chunk, final int dropped, final int position) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mCancelled) return;
+                mLoaded.addAll(chunk);
+                mDropped += dropped;
+                mPosition = position;
+
+                if (mCallback != null) {
+                    if (!chunk.isEmpty()) mCallback.onTargetsLoaded(chunk);
+                    if (dropped > 0) mCallback.onTargetsDropped(dropped);
+                }
+            }
+        });
+    }
+
+    private void deliverFinished() {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mCancelled) return;
+                mFinished = true;
+                if (mCallback != null) mCallback.onLoadFinished();
+            }
+        });
+    }
+
+    interface Callback {
+        /**
+         * Called once the number of share targets is known, before any labels or icons have been loaded
+         *
+         * @param count The number of share targets that will be loaded
+         */
+        void onTargetsQueried(int count);
+
+        /**
+         * Called with each chunk of share targets that has finished loading
+         *
+         * @param apps The loaded share targets
+         */
+        void onTargetsLoaded(List<AppAdapter.AppInfo> apps);
+
+        /**
+         * Called when share targets that were counted by {@link #onTargetsQueried(int)} will not be loaded, as their
+         * app is no longer installed
+         *
+         * @param count The number of share targets that were dropped
+         */
+        void onTargetsDropped(int count);
+
+        /**
+         * Called once every share target has been loaded
+         */
+        void onLoadFinished();
+    }
+}
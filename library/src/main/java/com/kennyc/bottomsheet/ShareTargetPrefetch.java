@@ -0,0 +1,139 @@
+package com.kennyc.bottomsheet;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ResolveInfo;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+
+import com.kennyc.bottomsheet.adapters.AppAdapter;
+import com.kennyc.bottomsheet.adapters.AppIconLoader;
+
+import java.util.List;
+
+/**
+ * Handle for share targets being resolved ahead of time by {@link BottomSheet#prefetchShareTargets(Context, Intent)}.
+ * The work starts once the calling thread is idle and runs in the background, warming the caches used when creating a
+ * share {@link BottomSheet}. A prefetch can be cancelled at any time, and expires if it has not completed in time.
+ */
+public class ShareTargetPrefetch implements MessageQueue.IdleHandler, Runnable {
+    /**
+     * Default time a prefetch has to complete before it is abandoned
+     */
+    public static final long DEFAULT_EXPIRATION = 10000L;
+
+    private final Context mContext;
+
+    private final Intent mIntent;
+
+    @Nullable
+    private final ShareTargetFilter mFilter;
+
+    private final int mIconSize;
+
+    private final long mExpiresAt;
+
+    @Nullable
+    private final Handler mHandler;
+
+    @Nullable
+    private final MessageQueue mQueue;
+
+    private volatile boolean mCancelled = false;
+
+    private volatile boolean mComplete = false;
+
+    private final Runnable mExpireRunnable = new Runnable() {
+        @Override
+        public void run() {
+            cancel();
+        }
+    };
+
+    ShareTargetPrefetch(Context context, Intent intent, boolean isGrid, @Nullable ShareTargetFilter filter, long expiration) {
+        mContext = context.getApplicationContext();
+        mIntent = new Intent(intent);
+        mFilter = filter;
+        mIconSize = context.getResources().getDimensionPixelSize(isGrid ? R.dimen.bottom_sheet_grid_icon_size : R.dimen.bottom_sheet_list_icon_size);
+        mExpiresAt = SystemClock.elapsedRealtime() + expiration;
+        boolean hasLooper = Looper.myLooper() != null;
+        mHandler = hasLooper ? new Handler() : null;
+        mQueue = hasLooper ? Looper.myQueue() : null;
+    }
+
+    /**
+     * Schedules the prefetch to run once the calling thread is idle. If the calling thread has no {@link Looper}, it is
+     * started immediately
+     */
+    void start() {
+        if (mHandler != null && mQueue != null) {
+            mHandler.postDelayed(mExpireRunnable, Math.max(0, mExpiresAt - SystemClock.elapsedRealtime()));
+            mQueue.addIdleHandler(this);
+        } else {
+            ShareTargetLoader.IDLE_EXECUTOR.execute(this);
+        }
+    }
+
+    /**
+     * Cancels the prefetch. Any targets that have already been resolved remain cached.
+     */
+    public void cancel() {
+        mCancelled = true;
+
+        if (mHandler != null) mHandler.removeCallbacks(mExpireRunnable);
+        if (mQueue != null) mQueue.removeIdleHandler(this);
+    }
+
+    /**
+     * Returns if the prefetch has been cancelled or has expired
+     *
+     * @return
+     */
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Returns if every share target has been resolved
+     *
+     * @return
+     */
+    public boolean isComplete() {
+        return mComplete;
+    }
+
+    @Override
+    public boolean queueIdle() {
+        if (!mCancelled) ShareTargetLoader.IDLE_EXECUTOR.execute(this);
+        // Only needs to run once
+        return false;
+    }
+
+    @Override
+    public void run() {
+        if (isExpired()) return;
+
+        ShareTargetCache cache = ShareTargetCache.get(mContext);
+        AppIconLoader iconLoader = AppIconLoader.get(mContext);
+        boolean allowPlaceholders = ShareTargetFilters.readsComponentOnly(mFilter);
+        List<ResolveInfo> apps = ShareTargetFilters.apply(cache.queryIntentActivities(mIntent, allowPlaceholders), mFilter);
+
+        for (ResolveInfo resolveInfo : apps) {
+            if (isExpired()) return;
+            AppAdapter.AppInfo appInfo = cache.loadAppInfo(resolveInfo);
+            iconLoader.loadSync(appInfo, mIconSize);
+        }
+
+        mComplete = true;
+        if (mHandler != null) mHandler.removeCallbacks(mExpireRunnable);
+        cache.flush();
+    }
+
+    private boolean isExpired() {
+        if (!mCancelled && SystemClock.elapsedRealtime() >= mExpiresAt) mCancelled = true;
+        return mCancelled;
+    }
+}
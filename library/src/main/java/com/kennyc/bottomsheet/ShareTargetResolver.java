@@ -0,0 +1,112 @@
+package com.kennyc.bottomsheet;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ResolveInfo;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.kennyc.bottomsheet.adapters.BackgroundExecutor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Resolves the share targets for one or more {@link Intent}s. When multiple intents are given, they are queried in
+ * parallel and the results are de-duplicated by {@link ComponentName}, keeping the first intent each component matched.
+ */
+class ShareTargetResolver {
+    private static final String TAG = ShareTargetResolver.class.getSimpleName();
+
+    private ShareTargetResolver() {
+        // No instances
+    }
+
+    /**
+     * Resolves the share targets for the given intents. This blocks until every intent has been queried.
+     *
+     * @param context App context
+     * @param intents The intents to resolve
+     * @param filter  If provided, only the targets the filter accepts are returned
+     * @return
+     */
+    @NonNull
+    static Result resolve(Context context, final Intent[] intents, @Nullable ShareTargetFilter filter) {
+        final ShareTargetCache cache = ShareTargetCache.get(context);
+        // Custom filters may read more of a ResolveInfo than the placeholders restored from disk contain
+        final boolean allowPlaceholders = ShareTargetFilters.readsComponentOnly(filter);
+        List<List<ResolveInfo>> queries = new ArrayList<>(intents.length);
+
+        if (intents.length == 1) {
+            queries.add(cache.queryIntentActivities(intents[0], allowPlaceholders));
+        } else {
+            List<FutureTask<List<ResolveInfo>>> tasks = new ArrayList<>(intents.length);
+
+            for (final Intent intent : intents) {
+                FutureTask<List<ResolveInfo>> task = new FutureTask<>(new Callable<List<ResolveInfo>>() {
+                    @Override
+                    public List<ResolveInfo> call() throws Exception {
+                        return cache.queryIntentActivities(intent, allowPlaceholders);
+                    }
+                });
+
+                tasks.add(task);
+                BackgroundExecutor.get().execute(task);
+            }
+
+            for (FutureTask<List<ResolveInfo>> task : tasks) {
+                // Queries the pool has not started yet run on this thread, as the pool may be busy with the work waiting on them
+                task.run();
+                queries.add(getQuietly(task));
+            }
+        }
+
+        Result result = new Result();
+
+        for (int i = 0; i < intents.length; i++) {
+            for (ResolveInfo resolveInfo : queries.get(i)) {
+                ComponentName component = ShareTargetFilters.getComponentName(resolveInfo);
+                if (result.intents.containsKey(component)) continue;
+
+                if (filter == null || filter.accept(resolveInfo)) {
+                    result.intents.put(component, intents[i]);
+                    result.targets.add(resolveInfo);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static List<ResolveInfo> getQuietly(Future<List<ResolveInfo>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Unable to resolve share intent", e);
+        }
+
+        return new ArrayList<>(0);
+    }
+
+    static class Result {
+        /**
+         * The de-duplicated share targets, in the order of the intents they matched
+         */
+        final List<ResolveInfo> targets = new ArrayList<>();
+
+        /**
+         * The intent each share target should be launched with
+         */
+        final Map<ComponentName, Intent> intents = new HashMap<>();
+    }
+}
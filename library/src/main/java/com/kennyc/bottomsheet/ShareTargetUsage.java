@@ -0,0 +1,140 @@
+package com.kennyc.bottomsheet;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.ResolveInfo;
+
+import com.kennyc.bottomsheet.adapters.BackgroundExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps a locally persisted count of how often each share target has been chosen, used for ranking share targets. The
+ * counts are read once in the background and kept in memory, choices are written back on the same executor.
+ */
+class ShareTargetUsage {
+    private static final String PREFS_NAME = "bottom_sheet_share_usage";
+
+    // Not the loader's executor, the reads and writes never wait behind the loads of a sheet
+    private static final Executor EXECUTOR = BackgroundExecutor.newSerialExecutor();
+
+    private static ShareTargetUsage sInstance;
+
+    private final Context mContext;
+
+    // Counts by flattened component, choices recorded before the preferences were read are added to the stored counts
+    private final Map<String, Integer> mCounts = new HashMap<>();
+
+    // Only used on the executor, once loaded
+    private SharedPreferences mPreferences;
+
+    private ShareTargetUsage(Context context) {
+        mContext = context;
+
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    /**
+     * Returns the usage of the share targets, starting to read the stored counts in the background the first time
+     *
+     * @param context
+     * @return
+     */
+    static synchronized ShareTargetUsage get(Context context) {
+        if (sInstance == null) sInstance = new ShareTargetUsage(context.getApplicationContext());
+        return sInstance;
+    }
+
+    private void load() {
+        SharedPreferences preferences = mContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        Map<String, ?> stored = preferences.getAll();
+
+        synchronized (mCounts) {
+            for (Map.Entry<String, ?> entry : stored.entrySet()) {
+                if (!(entry.getValue() instanceof Integer)) continue;
+
+                Integer recorded = mCounts.get(entry.getKey());
+                mCounts.put(entry.getKey(), (Integer) entry.getValue() + (recorded != null ? recorded : 0));
+            }
+        }
+
+        mPreferences = preferences;
+    }
+
+    /**
+     * Records that the given share target was chosen. The count is updated right away and written in the background.
+     *
+     * @param component The {@link ComponentName} of the share target
+     */
+    void record(ComponentName component) {
+        final String key = component.flattenToShortString();
+
+        synchronized (mCounts) {
+            Integer count = mCounts.get(key);
+            mCounts.put(key, count != null ? count + 1 : 1);
+        }
+
+        // Runs after the load, which was queued first
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                int count;
+
+                synchronized (mCounts) {
+                    count = mCounts.get(key);
+                }
+
+                if (mPreferences != null) mPreferences.edit().putInt(key, count).apply();
+            }
+        });
+    }
+
+    /**
+     * Returns a copy of the share targets sorted by how often they have been chosen. Targets with the same count keep
+     * their original order. Never waits for the stored counts, until they have been read only the choices recorded
+     * since are known.
+     *
+     * @param apps The share targets to rank
+     * @return
+     */
+    List<ResolveInfo> rank(List<ResolveInfo> apps) {
+        final int[] counts = new int[apps.size()];
+        List<Integer> order = new ArrayList<>(apps.size());
+
+        synchronized (mCounts) {
+            for (int i = 0; i < apps.size(); i++) {
+                Integer count = mCounts.get(ShareTargetFilters.getComponentName(apps.get(i)).flattenToShortString());
+                counts[i] = count != null ? count : 0;
+                order.add(i);
+            }
+        }
+
+        // Collections.sort is stable, ties keep the order the PackageManager returned them in
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                return counts[rhs] < counts[lhs] ? -1 : (counts[rhs] == counts[lhs] ? 0 : 1);
+            }
+        });
+
+        List<ResolveInfo> ranked = new ArrayList<>(apps.size());
+
+        for (Integer index : order) {
+            ranked.add(apps.get(index));
+        }
+
+        return ranked;
+    }
+}
@@ -0,0 +1,50 @@
+package com.kennyc.bottomsheet;
+
+import android.graphics.drawable.Drawable;
+import android.support.annotation.Nullable;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.GridView;
+
+import com.kennyc.bottomsheet.adapters.GridAdapter;
+
+import java.util.List;
+
+/**
+ * Page of a {@link BottomSheet} showing the items of a submenu in place of the items of the sheet. Pages are kept once
+ * built, so going back to one does not bind its rows again.
+ */
+class SheetPage {
+    final GridView grid;
+
+    final GridAdapter adapter;
+
+    final CharSequence title;
+
+    @Nullable
+    final Drawable icon;
+
+    /**
+     * Shown in place of the title and icon when set
+     */
+    @Nullable
+    final View headerView;
+
+    final List<MenuItem> items;
+
+    /**
+     * The page the submenu was opened from, NULL when opened from the items of the sheet
+     */
+    @Nullable
+    final SheetPage parent;
+
+    SheetPage(GridView grid, GridAdapter adapter, CharSequence title, @Nullable Drawable icon, @Nullable View headerView, List<MenuItem> items, @Nullable SheetPage parent) {
+        this.grid = grid;
+        this.adapter = adapter;
+        this.title = title;
+        this.icon = icon;
+        this.headerView = headerView;
+        this.items = items;
+        this.parent = parent;
+    }
+}
@@ -0,0 +1,153 @@
+package com.kennyc.bottomsheet;
+
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.support.annotation.ColorInt;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.StyleRes;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The attributes of a {@link BottomSheet} style, resolved once per style and theme of the host and reused by every sheet
+ * shown with them. Attributes the style does not define fall back to the theme of the host, so every theme keeps its own
+ * styles. The resolved styles are dropped when the configuration changes, such as the locale or the night mode. All
+ * methods must be called from the main thread.
+ */
+class SheetStyle {
+    private static final int[] ATTRS = new int[]{
+            R.attr.bottom_sheet_bg_color, // 0
+            R.attr.bottom_sheet_title_text_appearance, // 1
+            R.attr.bottom_sheet_list_text_appearance,// 2
+            R.attr.bottom_sheet_grid_text_appearance, // 3
+            R.attr.bottom_sheet_message_text_appearance, // 4
+            R.attr.bottom_sheet_message_title_text_appearance, // 5
+            R.attr.bottom_sheet_button_text_appearance, // 6
+            R.attr.bottom_sheet_item_icon_color, // 7
+            R.attr.bottom_sheet_grid_spacing, // 8
+            R.attr.bottom_sheet_grid_top_padding, // 9
+            R.attr.bottom_sheet_grid_bottom_padding, // 10
+            R.attr.bottom_sheet_selector, // 11
+            R.attr.bottom_sheet_column_count, // 12
+            R.attr.bottom_sheet_item_activated_color // 13
+    };
+
+    // Black at 12%, the same as @color/black_12
+    private static final int DEFAULT_ACTIVATED_COLOR = 0x1F000000;
+
+    // Weak keys, the styles of a host are dropped with its theme
+    private static final Map<Resources.Theme, Map<String, SheetStyle>> sStyles = new WeakHashMap<>();
+
+    private static boolean sRegistered;
+
+    @ColorInt
+    final int backgroundColor;
+
+    @StyleRes
+    final int titleTextAppearance;
+
+    @StyleRes
+    final int listTextAppearance;
+
+    @StyleRes
+    final int gridTextAppearance;
+
+    @StyleRes
+    final int messageTextAppearance;
+
+    @StyleRes
+    final int messageTitleTextAppearance;
+
+    @StyleRes
+    final int buttonTextAppearance;
+
+    // Integer.MIN_VALUE when the icons are not tinted
+    final int itemIconColor;
+
+    final int gridSpacing;
+
+    final int gridTopPadding;
+
+    final int gridBottomPadding;
+
+    @DrawableRes
+    final int selector;
+
+    // -1 when the number of columns depends on the items
+    final int columnCount;
+
+    // Shown behind the rows of checked items
+    @ColorInt
+    final int itemActivatedColor;
+
+    private SheetStyle(TypedArray ta) {
+        backgroundColor = ta.getColor(0, Color.WHITE);
+        titleTextAppearance = ta.getResourceId(1, R.style.BottomSheet_Title_TextAppearance);
+        listTextAppearance = ta.getResourceId(2, R.style.BottomSheet_ListItem_TextAppearance);
+        gridTextAppearance = ta.getResourceId(3, R.style.BottomSheet_GridItem_TextAppearance);
+        messageTextAppearance = ta.getResourceId(4, R.style.BottomSheet_Message_TextAppearance);
+        messageTitleTextAppearance = ta.getResourceId(5, R.style.BottomSheet_Message_Title_TextAppearance);
+        buttonTextAppearance = ta.getResourceId(6, R.style.BottomSheet_Button_TextAppearance);
+        itemIconColor = ta.getColor(7, Integer.MIN_VALUE);
+        gridSpacing = ta.getDimensionPixelOffset(8, 0);
+        gridTopPadding = ta.getDimensionPixelOffset(9, 0);
+        gridBottomPadding = ta.getDimensionPixelOffset(10, 0);
+        selector = ta.getResourceId(11, R.drawable.bs_list_selector);
+        columnCount = ta.getInteger(12, -1);
+        itemActivatedColor = ta.getColor(13, DEFAULT_ACTIVATED_COLOR);
+    }
+
+    /**
+     * Returns the attributes of a sheet, resolving them the first time they are needed for its styles
+     *
+     * @param context    The context of the sheet, themed with the style of its window
+     * @param hostTheme  The theme of the context the sheet was created with, such as the theme of its Activity
+     * @param themeStyle The style of the window of the sheet
+     * @param style      The style of the content of the sheet, its attributes take precedence over the ones of the theme
+     * @return
+     */
+    @NonNull
+    static SheetStyle get(@NonNull Context context, @NonNull Resources.Theme hostTheme, @StyleRes int themeStyle, @StyleRes int style) {
+        if (!sRegistered) {
+            sRegistered = true;
+            context.getApplicationContext().registerComponentCallbacks(new ComponentCallbacks() {
+                @Override
+                public void onConfigurationChanged(Configuration newConfig) {
+                    // Colors, dimensions and appearances may resolve differently, such as for a new uiMode
+                    sStyles.clear();
+                }
+
+                @Override
+                public void onLowMemory() {
+                    // Nothing worth freeing, the styles are small
+                }
+            });
+        }
+
+        Map<String, SheetStyle> styles = sStyles.get(hostTheme);
+
+        if (styles == null) {
+            styles = new HashMap<>();
+            sStyles.put(hostTheme, styles);
+        }
+
+        String key = themeStyle + ":" + style;
+        SheetStyle sheetStyle = styles.get(key);
+
+        if (sheetStyle == null) {
+            TypedArray ta = context.obtainStyledAttributes(null, ATTRS, 0, style != themeStyle ? style : 0);
+            sheetStyle = new SheetStyle(ta);
+            ta.recycle();
+            styles.put(key, sheetStyle);
+        }
+
+        return sheetStyle;
+    }
+}
@@ -2,16 +2,22 @@ package com.kennyc.bottomsheet.adapters;
 
 import android.content.Context;
 import android.content.Intent;
+import android.content.pm.ResolveInfo;
 import android.graphics.drawable.Drawable;
+import android.support.annotation.Nullable;
 import android.support.v4.content.ContextCompat;
-import android.view.LayoutInflater;
+import android.text.Layout;
+import android.text.TextPaint;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AdapterView;
 import android.widget.BaseAdapter;
 
 import com.kennyc.bottomsheet.BottomSheet;
 import com.kennyc.bottomsheet.R;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -19,34 +25,243 @@ import java.util.Set;
  * Adapter used when {@link BottomSheet#createShareBottomSheet(Context, Intent, String, boolean, Set, Set)} is invoked
  */
 public class AppAdapter extends BaseAdapter {
+    private static final long MORE_ITEM_ID = Long.MIN_VALUE;
+
+    private static final long PLACEHOLDER_ID = Long.MIN_VALUE + 1;
+
     List<AppInfo> mApps;
 
-    private LayoutInflater mInflater;
+    private Context mContext;
 
     private int mTextColor;
 
     private int mLayoutResource;
 
+    private boolean mFlatItems;
+
+    private boolean mIsGrid;
+
+    private int mIconSize;
+
+    private AppIconLoader mIconLoader;
+
+    private int mPlaceholderCount = 0;
+
+    @Nullable
+    private AppInfo mMoreItem;
+
     public AppAdapter(Context context, List<AppInfo> apps, boolean isGrid) {
-        mApps = apps;
-        mInflater = LayoutInflater.from(context);
+        mApps = apps != null ? apps : new ArrayList<AppInfo>();
+        mContext = context;
         mTextColor = ContextCompat.getColor(context, R.color.black_85);
-        mLayoutResource = isGrid ? R.layout.bottom_sheet_grid_item : R.layout.bottom_sheet_list_item;
+        mIsGrid = isGrid;
+        mLayoutResource = ItemViewPool.getItemLayout(isGrid, false);
+        mIconSize = context.getResources().getDimensionPixelSize(isGrid ? R.dimen.bottom_sheet_grid_icon_size : R.dimen.bottom_sheet_list_icon_size);
+        mIconLoader = AppIconLoader.get(context);
+    }
+
+    /**
+     * Sets the number of rows to reserve while apps are still being resolved. Rows that do not have an app yet
+     * are shown as empty placeholders
+     *
+     * @param count The total number of apps that are expected
+     */
+    public void setPlaceholderCount(int count) {
+        mPlaceholderCount = count;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Appends apps that have finished resolving, replacing their placeholders
+     *
+     * @param apps The apps to append
+     */
+    public void addApps(List<AppInfo> apps) {
+        if (apps == null || apps.isEmpty()) return;
+        mApps.addAll(apps);
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Appends apps that have finished resolving in place of their placeholders, without notifying the adapter. The rows
+     * of the apps should be rebound, see {@link ListDiff#rebind(android.widget.AbsListView, BaseAdapter, int, int)}.
+     * If there are more apps than placeholders, the adapter is notified instead.
+     *
+     * @param apps The apps to append
+     * @return If the apps only replaced placeholders and the adapter was not notified
+     */
+    public boolean fillPlaceholders(List<AppInfo> apps) {
+        if (apps == null || apps.isEmpty()) return true;
+
+        if (mApps.size() + apps.size() > mPlaceholderCount) {
+            addApps(apps);
+            return false;
+        }
+
+        mApps.addAll(apps);
+        return true;
+    }
+
+    /**
+     * Removes placeholders of apps that will not be loaded
+     *
+     * @param count The number of placeholders to remove
+     */
+    public void removePlaceholders(int count) {
+        mPlaceholderCount = Math.max(0, mPlaceholderCount - count);
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Removes the apps belonging to any of the given packages, along with as many placeholders if apps are still being
+     * loaded
+     *
+     * @param packageNames The packages whose apps should be removed
+     * @return If any app was removed
+     */
+    public boolean removePackages(Set<String> packageNames) {
+        int removed = 0;
+        Iterator<AppInfo> iterator = mApps.iterator();
+
+        while (iterator.hasNext()) {
+            if (packageNames.contains(iterator.next().packageName)) {
+                iterator.remove();
+                removed++;
+            }
+        }
+
+        if (removed == 0) return false;
+        mPlaceholderCount = Math.max(0, mPlaceholderCount - removed);
+        notifyDataSetChanged();
+        return true;
+    }
+
+    /**
+     * Returns the apps of the adapter, excluding placeholders and the "More" item
+     *
+     * @return
+     */
+    public List<AppInfo> getApps() {
+        return mApps;
+    }
+
+    /**
+     * Replaces the apps of the adapter without notifying it, see {@link ListDiff} for updating a showing list. Any
+     * placeholders are dropped.
+     *
+     * @param apps The new apps
+     * @return If placeholders were shown, their rows are only removed once the adapter is notified
+     */
+    public boolean setApps(List<AppInfo> apps) {
+        boolean hadPlaceholders = mPlaceholderCount > mApps.size();
+        mApps = apps != null ? apps : new ArrayList<AppInfo>();
+        mPlaceholderCount = 0;
+        return hadPlaceholders;
+    }
+
+    /**
+     * Returns the number of apps that have been resolved, excluding placeholders and the "More" item
+     *
+     * @return
+     */
+    public int getAppCount() {
+        return mApps.size();
+    }
+
+    /**
+     * Sets the item shown after every app that expands the remaining apps when selected
+     *
+     * @param moreItem The item to show, NULL to remove it
+     */
+    public void setMoreItem(@Nullable AppInfo moreItem) {
+        mMoreItem = moreItem;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Returns if the item at the given position is the "More" item set by {@link #setMoreItem(AppInfo)}
+     *
+     * @param position
+     * @return
+     */
+    public boolean isMoreItem(int position) {
+        return mMoreItem != null && position == getCount() - 1;
+    }
+
+    /**
+     * Sets if the rows are rendered by a single {@link FlatItemView} instead of the item layout. Must be set before the
+     * adapter is attached.
+     *
+     * @param flatItems
+     */
+    public void setFlatItems(boolean flatItems) {
+        mFlatItems = flatItems;
+        mLayoutResource = ItemViewPool.getItemLayout(mIsGrid, flatItems);
+    }
+
+    /**
+     * Measures the titles of the apps on a background thread, so the first layout pass does not have to
+     *
+     * @param itemWidth The width in pixels of a single item
+     */
+    public void precomputeTitles(int itemWidth) {
+        precomputeTitles(mContext, mApps, mIsGrid, mFlatItems, itemWidth);
+    }
+
+    /**
+     * Measures the titles of apps on a background thread, before their adapter is created. The measured titles are
+     * drawn by the {@link MeasuredTextView} of the item layout, or by the {@link FlatItemView} of flat rows.
+     *
+     * @param context   The context the rows will be inflated with
+     * @param apps      The apps
+     * @param isGrid    If the rows are grid styled
+     * @param isFlat    If the rows are rendered by a {@link FlatItemView}
+     * @param itemWidth The width in pixels of a single item
+     */
+    public static void precomputeTitles(Context context, List<AppInfo> apps, boolean isGrid, boolean isFlat, int itemWidth) {
+        List<CharSequence> titles = new ArrayList<>(apps.size());
+
+        for (AppInfo appInfo : apps) {
+            titles.add(appInfo.title);
+        }
+
+        TextPaint paint = isFlat ? FlatItemView.createTitlePaint(context, 0) : MeasuredTextView.createPaint(context, 0);
+        Layout.Alignment alignment = isFlat ? FlatItemView.getTitleAlignment(isGrid) : Layout.Alignment.ALIGN_NORMAL;
+        TextMeasurer.precompute(titles, paint, FlatItemView.getTitleWidth(context.getResources(), isGrid, true, itemWidth), alignment, true);
     }
 
     @Override
     public int getCount() {
-        return mApps.size();
+        return Math.max(mApps.size(), mPlaceholderCount) + (mMoreItem != null ? 1 : 0);
     }
 
     @Override
     public AppInfo getItem(int position) {
-        return mApps.get(position);
+        if (isMoreItem(position)) return mMoreItem;
+        return position < mApps.size() ? mApps.get(position) : null;
+    }
+
+    @Override
+    public boolean areAllItemsEnabled() {
+        return mApps.size() >= mPlaceholderCount;
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        return position < mApps.size() || isMoreItem(position);
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
     }
 
     @Override
     public long getItemId(int position) {
-        return 0;
+        if (isMoreItem(position)) return MORE_ITEM_ID;
+        AppInfo appInfo = getItem(position);
+        // Placeholders are identified by their position
+        return appInfo != null ? appInfo.getId() : PLACEHOLDER_ID + position;
     }
 
     @Override
@@ -55,15 +270,36 @@ public class AppAdapter extends BaseAdapter {
         ViewHolder holder;
 
         if (convertView == null) {
-            convertView = mInflater.inflate(mLayoutResource, parent, false);
-            holder = new ViewHolder(convertView);
-            holder.title.setTextColor(mTextColor);
+            convertView = ItemViewPool.obtain(mContext, mLayoutResource, mTextColor, parent);
+            holder = (ViewHolder) convertView.getTag();
+            if (!holder.isRecycled) holder.setTitleColor(mTextColor);
         } else {
             holder = (ViewHolder) convertView.getTag();
         }
 
-        holder.icon.setImageDrawable(appInfo.drawable);
-        holder.title.setText(appInfo.title);
+        if (!holder.bind(appInfo != null ? getItemId(position) : AdapterView.INVALID_ROW_ID)) return convertView;
+
+        if (appInfo != null) {
+            if (appInfo.drawable == null) {
+                // Only load the icon once its row is bound, apps restored from disk may not have a ResolveInfo yet
+                if (holder.item != null) {
+                    mIconLoader.load(appInfo, holder.item, mIconSize);
+                } else {
+                    mIconLoader.load(appInfo, holder.icon, mIconSize);
+                }
+            } else {
+                AppIconLoader.cancel(holder.getIconView());
+                holder.setSharedIcon(appInfo.drawable);
+            }
+
+            holder.setTitle(appInfo.title);
+        } else {
+            // Placeholder until the app has been resolved
+            AppIconLoader.cancel(holder.getIconView());
+            holder.setIcon(null);
+            holder.setTitle(null);
+        }
+
         return convertView;
     }
 
@@ -76,11 +312,48 @@ public class AppAdapter extends BaseAdapter {
 
         public Drawable drawable;
 
+        /**
+         * The {@link ResolveInfo} used to load the icon when it is first displayed, only used when {@link #drawable} is NULL.
+         * Apps restored from disk have none until the PackageManager has been queried again.
+         */
+        @Nullable
+        public ResolveInfo resolveInfo;
+
+        // Derived from the component on first use, 0 until then. Diffs read it on a background thread
+        private volatile long mId;
+
         public AppInfo(String title, String packageName, String name, Drawable drawable) {
+            this(title, packageName, name, drawable, null);
+        }
+
+        public AppInfo(String title, String packageName, String name, @Nullable Drawable drawable, @Nullable ResolveInfo resolveInfo) {
             this.title = title;
             this.packageName = packageName;
             this.name = name;
             this.drawable = drawable;
+            this.resolveInfo = resolveInfo;
+        }
+
+        /**
+         * Returns the stable id of the app, a 64 bit hash of its component. Ids are never negative, so they can't be
+         * mistaken for the ids of placeholders. Apps with the same component share the id.
+         *
+         * @return
+         */
+        public long getId() {
+            if (mId == 0) mId = hash(hash(1125899906842597L, packageName), name) & Long.MAX_VALUE;
+            return mId;
+        }
+
+        private static long hash(long hash, @Nullable String value) {
+            if (value == null) return hash * 31;
+
+            for (int i = 0; i < value.length(); i++) {
+                hash = 31 * hash + value.charAt(i);
+            }
+
+            // Mixes in the length, so moving characters between the package and the name changes the hash
+            return 31 * hash + value.length();
         }
     }
 }
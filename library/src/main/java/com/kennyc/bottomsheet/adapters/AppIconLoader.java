@@ -0,0 +1,319 @@
+package com.kennyc.bottomsheet.adapters;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+import android.support.v4.util.LruCache;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.View;
+import android.widget.ImageView;
+
+import com.kennyc.bottomsheet.R;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Loads the icons of share targets on demand. Icons are decoded off the main thread, rasterized to the size they will be
+ * displayed at, and kept in a size bounded LRU cache of {@link Bitmap}s that is shared by every {@link AppAdapter}.<p>
+ * Rather than loading the icon at the density of the device, the lowest density bucket that still covers the requested
+ * size is loaded, so a 24dp list icon does not decode a launcher sized bitmap first. An {@link IconSource} may provide
+ * icons that were rasterized before, such as ones persisted to disk, which are cached the same way.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class AppIconLoader {
+    private static final String TAG = AppIconLoader.class.getSimpleName();
+
+    /**
+     * Size in dp that launcher icons are designed for
+     */
+    private static final int LAUNCHER_ICON_SIZE = 48;
+
+    private static final int[] DENSITIES = new int[]{
+            DisplayMetrics.DENSITY_LOW,
+            DisplayMetrics.DENSITY_MEDIUM,
+            DisplayMetrics.DENSITY_HIGH,
+            DisplayMetrics.DENSITY_XHIGH,
+            DisplayMetrics.DENSITY_XXHIGH,
+            DisplayMetrics.DENSITY_XXXHIGH
+    };
+
+    private static AppIconLoader sInstance;
+
+    private final PackageManager mManager;
+
+    private final int mDeviceDensity;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private final Executor mExecutor = BackgroundExecutor.get();
+
+    private final LruCache<String, Bitmap> mCache;
+
+    private volatile IconSource mIconSource;
+
+    private AppIconLoader(Context context) {
+        mManager = context.getPackageManager();
+        mDeviceDensity = context.getResources().getDisplayMetrics().densityDpi;
+        // Use 1/32 of the available memory, icons of the visible rows will fit well within that
+        int maxSize = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 32);
+
+        mCache = new LruCache<String, Bitmap>(maxSize) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * Returns the process wide {@link AppIconLoader}
+     *
+     * @param context Any context, the application context will be used
+     * @return
+     */
+    public static synchronized AppIconLoader get(Context context) {
+        if (sInstance == null) sInstance = new AppIconLoader(context.getApplicationContext());
+        return sInstance;
+    }
+
+    /**
+     * Sets the source that is checked for an icon before loading it from the PackageManager
+     *
+     * @param iconSource The source, NULL to only load icons from the PackageManager
+     */
+    public void setIconSource(@Nullable IconSource iconSource) {
+        mIconSource = iconSource;
+    }
+
+    /**
+     * Displays the icon of the app in the given {@link ImageView}. If the icon is cached it will be set immediately,
+     * otherwise it will be set once it has been decoded, provided the {@link ImageView} has not been rebound since.
+     * Must be called from the main thread.
+     *
+     * @param appInfo   The app to load the icon for
+     * @param imageView The {@link ImageView} to display the icon in
+     * @param size      The size in pixels of the icon
+     */
+    public void load(@NonNull AppAdapter.AppInfo appInfo, @NonNull ImageView imageView, int size) {
+        loadInto(appInfo, imageView, size);
+    }
+
+    /**
+     * Displays the icon of the app in the given {@link FlatItemView}. See {@link #load(AppAdapter.AppInfo, ImageView, int)}
+     *
+     * @param appInfo  The app to load the icon for
+     * @param itemView The {@link FlatItemView} to display the icon in
+     * @param size     The size in pixels of the icon
+     */
+    public void load(@NonNull AppAdapter.AppInfo appInfo, @NonNull FlatItemView itemView, int size) {
+        loadInto(appInfo, itemView, size);
+    }
+
+    /**
+     * Cancels the pending load of the given view, so it will not be set once decoded
+     *
+     * @param view The {@link ImageView} or {@link FlatItemView} the icon was being loaded into
+     */
+    public static void cancel(@NonNull View view) {
+        view.setTag(R.id.bottom_sheet_icon_key, null);
+    }
+
+    private void loadInto(@NonNull final AppAdapter.AppInfo appInfo, @NonNull final View target, final int size) {
+        final String key = getKey(appInfo, size);
+        target.setTag(R.id.bottom_sheet_icon_key, key);
+        Bitmap cached = mCache.get(key);
+
+        if (cached != null) {
+            setBitmap(target, cached);
+            return;
+        }
+
+        setBitmap(target, null);
+
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = loadSync(appInfo, size);
+
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (bitmap != null && key.equals(target.getTag(R.id.bottom_sheet_icon_key))) setBitmap(target, bitmap);
+                    }
+                });
+            }
+        });
+    }
+
+    private static void setBitmap(View target, @Nullable Bitmap bitmap) {
+        if (target instanceof FlatItemView) {
+            FlatItemView itemView = (FlatItemView) target;
+            // Rebinding a row to the same app keeps its drawable
+            if (bitmap != null && isShowing(itemView.getIcon(), bitmap)) return;
+            itemView.setIcon(bitmap != null ? new BitmapDrawable(target.getResources(), bitmap) : null);
+        } else {
+            ImageView imageView = (ImageView) target;
+            if (bitmap != null && isShowing(imageView.getDrawable(), bitmap)) return;
+            imageView.setImageBitmap(bitmap);
+        }
+    }
+
+    private static boolean isShowing(@Nullable Drawable drawable, Bitmap bitmap) {
+        return drawable instanceof BitmapDrawable && ((BitmapDrawable) drawable).getBitmap() == bitmap;
+    }
+
+    /**
+     * Returns the icon of the app, decoding it on the calling thread if it is not cached. This should not be called
+     * from the main thread.
+     *
+     * @param appInfo The app to load the icon for
+     * @param size    The size in pixels of the icon
+     * @return The icon, NULL if neither the {@link IconSource} nor the {@link ResolveInfo} of the app provide one
+     */
+    @Nullable
+    public Bitmap loadSync(@NonNull AppAdapter.AppInfo appInfo, int size) {
+        String key = getKey(appInfo, size);
+        Bitmap bitmap = mCache.get(key);
+        if (bitmap != null) return bitmap;
+
+        IconSource iconSource = mIconSource;
+        if (iconSource != null) bitmap = iconSource.loadIcon(appInfo, size);
+
+        if (bitmap == null) {
+            if (appInfo.resolveInfo == null) return null;
+            bitmap = rasterize(loadIcon(appInfo.resolveInfo, size), size);
+        }
+
+        mCache.put(key, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Returns the icon of the app if it is cached
+     *
+     * @param appInfo The app to get the icon for
+     * @param size    The size in pixels of the icon
+     * @return The icon, NULL if it is not cached
+     */
+    @Nullable
+    public Bitmap getCached(@NonNull AppAdapter.AppInfo appInfo, int size) {
+        return mCache.get(getKey(appInfo, size));
+    }
+
+    /**
+     * Clears every cached icon of the given app
+     *
+     * @param appInfo The app to clear
+     */
+    public void invalidate(@NonNull AppAdapter.AppInfo appInfo) {
+        String prefix = appInfo.packageName + "/" + appInfo.name + "@";
+
+        for (String key : mCache.snapshot().keySet()) {
+            if (key.startsWith(prefix)) mCache.remove(key);
+        }
+    }
+
+    /**
+     * Clears every cached icon belonging to the given package
+     *
+     * @param packageName The package to clear, NULL to clear every icon
+     */
+    public void invalidate(@Nullable String packageName) {
+        if (packageName == null) {
+            mCache.evictAll();
+            return;
+        }
+
+        String prefix = packageName + "/";
+
+        for (String key : mCache.snapshot().keySet()) {
+            if (key.startsWith(prefix)) mCache.remove(key);
+        }
+    }
+
+    /**
+     * Loads the icon of the {@link ResolveInfo} from the lowest density bucket that will still cover the given size
+     *
+     * @param resolveInfo The {@link ResolveInfo} to load the icon for
+     * @param size        The size in pixels the icon will be displayed at
+     * @return
+     */
+    private Drawable loadIcon(ResolveInfo resolveInfo, int size) {
+        int iconRes = resolveInfo.getIconResource();
+
+        if (iconRes != 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
+            try {
+                Resources resources;
+
+                if (resolveInfo.resolvePackageName != null && resolveInfo.icon != 0) {
+                    resources = mManager.getResourcesForApplication(resolveInfo.resolvePackageName);
+                } else {
+                    resources = mManager.getResourcesForApplication(resolveInfo.activityInfo.applicationInfo);
+                }
+
+                Drawable drawable = resources.getDrawableForDensity(iconRes, getDensityForSize(size));
+                if (drawable != null) return drawable;
+            } catch (PackageManager.NameNotFoundException | Resources.NotFoundException e) {
+                Log.w(TAG, "Unable to load icon for " + resolveInfo.activityInfo.name, e);
+            }
+        }
+
+        return resolveInfo.loadIcon(mManager);
+    }
+
+    /**
+     * Returns the lowest density whose launcher icon is at least the given size, never exceeding the density of the device
+     *
+     * @param size The size in pixels the icon will be displayed at
+     * @return
+     */
+    private int getDensityForSize(int size) {
+        int required = (int) Math.ceil(size * (float) DisplayMetrics.DENSITY_DEFAULT / LAUNCHER_ICON_SIZE);
+
+        for (int density : DENSITIES) {
+            if (density >= required) return Math.min(density, mDeviceDensity);
+        }
+
+        return mDeviceDensity;
+    }
+
+    private static Bitmap rasterize(Drawable drawable, int size) {
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        drawable.setBounds(0, 0, size, size);
+        drawable.draw(canvas);
+        return bitmap;
+    }
+
+    private static String getKey(AppAdapter.AppInfo appInfo, int size) {
+        return appInfo.packageName + "/" + appInfo.name + "@" + size;
+    }
+
+    /**
+     * Provides icons that were rasterized before, so they do not need to be loaded from the PackageManager
+     */
+    public interface IconSource {
+
+        /**
+         * Returns the icon of the app. This is called from a background thread.
+         *
+         * @param appInfo The app to load the icon for
+         * @param size    The size in pixels of the icon
+         * @return The icon rasterized at the given size, NULL if there is none
+         */
+        @Nullable
+        Bitmap loadIcon(@NonNull AppAdapter.AppInfo appInfo, int size);
+    }
+}
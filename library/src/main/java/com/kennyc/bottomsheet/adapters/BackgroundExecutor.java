@@ -0,0 +1,121 @@
+package com.kennyc.bottomsheet.adapters;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The background threads shared by the library. Independent work runs on a small pool of daemon threads at background
+ * priority, work that has to run in order gets an executor from {@link #newSerialExecutor()} that is backed by the same
+ * pool. Long running work gets a thread of its own from {@link #newThreadExecutor(String, int)}. Threads stop once
+ * they have been idle for a while.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class BackgroundExecutor {
+    private static final int THREAD_COUNT = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+
+    private static final ThreadPoolExecutor POOL =
+            newThreadPool(THREAD_COUNT, "BottomSheet-Background-", Process.THREAD_PRIORITY_BACKGROUND);
+
+    private BackgroundExecutor() {
+        // No instances
+    }
+
+    /**
+     * Returns the shared pool, for work that may run in parallel with other work
+     *
+     * @return
+     */
+    @NonNull
+    public static Executor get() {
+        return POOL;
+    }
+
+    /**
+     * Returns a new executor running its work one at a time in the order it was submitted, on the threads of the shared
+     * pool. Work of the same executor never runs in parallel, so it may share state without further locking.
+     *
+     * @return
+     */
+    @NonNull
+    public static Executor newSerialExecutor() {
+        return new SerialExecutor();
+    }
+
+    /**
+     * Returns a new executor running its work one at a time on its own thread, for long running work such as
+     * maintenance that must not take up the threads of the shared pool. The thread stops once it has been idle for a
+     * while and is started again for new work.
+     *
+     * @param name           The name of the thread
+     * @param threadPriority The priority the thread runs at, see {@link Process#setThreadPriority(int)}
+     * @return
+     */
+    @NonNull
+    public static Executor newThreadExecutor(@NonNull String name, int threadPriority) {
+        return newThreadPool(1, name, threadPriority);
+    }
+
+    private static ThreadPoolExecutor newThreadPool(final int threadCount, final String name, final int threadPriority) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threadCount, threadCount, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(@NonNull final Runnable r) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(threadPriority);
+                        r.run();
+                    }
+                }, threadCount == 1 ? name : name + mCount.incrementAndGet());
+
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static class SerialExecutor implements Executor {
+        private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+
+        @Nullable
+        private Runnable mActive;
+
+        @Override
+        public synchronized void execute(@NonNull final Runnable command) {
+            mTasks.offer(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        command.run();
+                    } finally {
+                        scheduleNext();
+                    }
+                }
+            });
+
+            if (mActive == null) scheduleNext();
+        }
+
+        private synchronized void scheduleNext() {
+            mActive = mTasks.poll();
+            if (mActive != null) POOL.execute(mActive);
+        }
+    }
+}
@@ -0,0 +1,476 @@
+package com.kennyc.bottomsheet.adapters;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+import android.support.annotation.StyleRes;
+import android.support.v4.view.ViewCompat;
+import android.text.Layout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import com.kennyc.bottomsheet.R;
+
+/**
+ * Single {@link View} rendering a row of a {@link com.kennyc.bottomsheet.BottomSheet}. It draws the icon and a single line
+ * title itself instead of using a layout with an {@link android.widget.ImageView} and a {@link android.widget.TextView},
+ * matching the list and grid item layouts while only adding one view per row. The title is exposed to accessibility
+ * services like the text of a {@link android.widget.TextView}, unless a content description is set.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class FlatItemView extends View {
+    // Must be sorted in ascending order for obtainStyledAttributes
+    private static final int[] TEXT_APPEARANCE_ATTRS = new int[]{
+            android.R.attr.textSize,
+            android.R.attr.typeface,
+            android.R.attr.textStyle,
+            android.R.attr.textColor
+    };
+
+    private static final int TYPEFACE_SANS = 1;
+
+    private static final int TYPEFACE_SERIF = 2;
+
+    private static final int TYPEFACE_MONOSPACE = 3;
+
+    private static final int LIST_ITEM_HEIGHT_DP = 48;
+
+    private final TextPaint mPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+
+    private final Paint.FontMetricsInt mFontMetrics = new Paint.FontMetricsInt();
+
+    private boolean mIsGrid;
+
+    private int mIconSize;
+
+    private int mPadding;
+
+    private int mListHeight;
+
+    @Nullable
+    private Drawable mIcon;
+
+    private boolean mIconVisible = true;
+
+    @Nullable
+    private CharSequence mTitle;
+
+    @Nullable
+    private ColorStateList mTitleColor;
+
+    @Nullable
+    private Layout mTitleLayout;
+
+    private float mContentAlpha = 1f;
+
+    private boolean mCheckable;
+
+    public FlatItemView(Context context) {
+        this(context, null);
+    }
+
+    public FlatItemView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public FlatItemView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        TypedArray ta = context.obtainStyledAttributes(attrs, R.styleable.FlatItemView, defStyleAttr, 0);
+        boolean isGrid = ta.getBoolean(R.styleable.FlatItemView_bottom_sheet_item_grid, false);
+        ta.recycle();
+
+        Resources res = getResources();
+        mPadding = res.getDimensionPixelSize(R.dimen.bottom_sheet_dialog_padding);
+        mListHeight = (int) (LIST_ITEM_HEIGHT_DP * res.getDisplayMetrics().density + .5f);
+        initTitlePaint(res, mPaint);
+        setGrid(isGrid);
+    }
+
+    /**
+     * Sets if the item is laid out as a grid item, with the title centered below the icon, or as a list item
+     *
+     * @param isGrid
+     */
+    public void setGrid(boolean isGrid) {
+        mIsGrid = isGrid;
+        mIconSize = getResources().getDimensionPixelSize(isGrid ? R.dimen.bottom_sheet_grid_icon_size : R.dimen.bottom_sheet_list_icon_size);
+        mTitleLayout = null;
+        updateIconBounds();
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Sets the icon of the item
+     *
+     * @param icon
+     */
+    public void setIcon(@Nullable Drawable icon) {
+        if (mIcon == icon) return;
+
+        if (mIcon != null) mIcon.setCallback(null);
+        mIcon = icon;
+
+        if (icon != null) {
+            icon.setCallback(this);
+            if (icon.isStateful()) icon.setState(getDrawableState());
+            updateIconBounds();
+        }
+
+        invalidate();
+    }
+
+    @Nullable
+    public Drawable getIcon() {
+        return mIcon;
+    }
+
+    /**
+     * Sets the opacity the icon and title are drawn with, without affecting the alpha of the view itself
+     *
+     * @param alpha
+     */
+    public void setContentAlpha(float alpha) {
+        if (mContentAlpha == alpha) return;
+
+        mContentAlpha = alpha;
+        updateTitleColor();
+        invalidate();
+    }
+
+    /**
+     * Sets if the item can be checked, the checked state is the activated state of the view
+     *
+     * @param checkable
+     */
+    public void setCheckable(boolean checkable) {
+        mCheckable = checkable;
+    }
+
+    /**
+     * Sets if space is reserved for the icon, like {@link View#GONE} would for an {@link android.widget.ImageView}
+     *
+     * @param visible
+     */
+    public void setIconVisible(boolean visible) {
+        if (mIconVisible == visible) return;
+
+        mIconVisible = visible;
+        mTitleLayout = null;
+        // Grid items change their height, list items shift their title
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Sets the title of the item
+     *
+     * @param title
+     */
+    public void setTitle(@Nullable CharSequence title) {
+        if (TextUtils.equals(mTitle, title)) return;
+
+        mTitle = title;
+        mTitleLayout = null;
+        // The title is a single line, the size of the view does not change
+        invalidate();
+    }
+
+    @Nullable
+    public CharSequence getTitle() {
+        return mTitle;
+    }
+
+    /**
+     * Styles the title with the size, typeface, style and color of the given text appearance
+     *
+     * @param textAppearance
+     */
+    public void setTitleAppearance(@StyleRes int textAppearance) {
+        ColorStateList color = applyTextAppearance(getContext(), mPaint, textAppearance);
+        if (color != null) setTitleColor(color);
+        mTitleLayout = null;
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Sets the color of the title
+     *
+     * @param color
+     */
+    public void setTitleColor(int color) {
+        setTitleColor(ColorStateList.valueOf(color));
+    }
+
+    /**
+     * Sets the color of the title
+     *
+     * @param color
+     */
+    public void setTitleColor(@NonNull ColorStateList color) {
+        mTitleColor = color;
+        updateTitleColor();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED ?
+                getSuggestedMinimumWidth() : MeasureSpec.getSize(widthMeasureSpec);
+        int height;
+
+        if (mIsGrid) {
+            mPaint.getFontMetricsInt(mFontMetrics);
+            height = mFontMetrics.bottom - mFontMetrics.top + mPadding;
+            if (mIconVisible) height += mIconSize + mPadding * 2;
+        } else {
+            height = mListHeight;
+        }
+
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (w != oldw) mTitleLayout = null;
+        updateIconBounds();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (mIconVisible && mIcon != null) drawIcon(canvas);
+
+        Layout layout = getTitleLayout();
+        if (layout == null) return;
+
+        // Layouts measured ahead of time use their own copy of the paint
+        if (layout.getPaint() != mPaint) layout.getPaint().setColor(mPaint.getColor());
+        int save = canvas.save();
+
+        if (mIsGrid) {
+            int top = mIconVisible ? mIconSize + mPadding * 2 : 0;
+            canvas.translate((getWidth() - layout.getWidth()) / 2, top);
+        } else {
+            int left = getTitleStart(mPadding, mIconSize, mIconVisible);
+            if (isRtl()) left = getWidth() - left - layout.getWidth();
+            canvas.translate(left, (getHeight() - layout.getHeight()) / 2);
+        }
+
+        layout.draw(canvas);
+        canvas.restoreToCount(save);
+    }
+
+    private void drawIcon(Canvas canvas) {
+        if (mContentAlpha >= 1f) {
+            mIcon.draw(canvas);
+            return;
+        }
+
+        // The icon may share its state with other rows, so it is faded through a layer instead of its own alpha
+        Rect bounds = mIcon.getBounds();
+        int save = canvas.saveLayerAlpha(bounds.left, bounds.top, bounds.right, bounds.bottom, (int) (mContentAlpha * 255), Canvas.ALL_SAVE_FLAG);
+        mIcon.draw(canvas);
+        canvas.restoreToCount(save);
+    }
+
+    @Override
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        super.onInitializeAccessibilityNodeInfo(info);
+        if (TextUtils.isEmpty(getContentDescription())) info.setText(mTitle);
+        info.setCheckable(mCheckable);
+        info.setChecked(mCheckable && isActivated());
+    }
+
+    @Override
+    public void onPopulateAccessibilityEvent(AccessibilityEvent event) {
+        super.onPopulateAccessibilityEvent(event);
+        if (TextUtils.isEmpty(getContentDescription()) && !TextUtils.isEmpty(mTitle)) event.getText().add(mTitle);
+    }
+
+    @Override
+    protected boolean verifyDrawable(@NonNull Drawable who) {
+        return who == mIcon || super.verifyDrawable(who);
+    }
+
+    @Override
+    protected void drawableStateChanged() {
+        super.drawableStateChanged();
+        if (mIcon != null && mIcon.isStateful()) mIcon.setState(getDrawableState());
+        updateTitleColor();
+    }
+
+    @Override
+    public void jumpDrawablesToCurrentState() {
+        super.jumpDrawablesToCurrentState();
+        if (mIcon != null) mIcon.jumpToCurrentState();
+    }
+
+    @Nullable
+    private Layout getTitleLayout() {
+        if (mTitleLayout == null && !TextUtils.isEmpty(mTitle) && getWidth() > 0) {
+            int available = getTitleWidth(mIsGrid, mPadding, mIconSize, mIconVisible, getWidth());
+            if (available <= 0) return null;
+
+            Layout.Alignment alignment = getTitleAlignment(mIsGrid);
+            mTitleLayout = TextMeasurer.get(mTitle, mPaint, available, alignment, true);
+            if (mTitleLayout == null) mTitleLayout = TextMeasurer.build(mTitle, mPaint, available, alignment, true);
+        }
+
+        return mTitleLayout;
+    }
+
+    /**
+     * Returns a paint equivalent to the one used for drawing the title when styled with the given text appearance, for
+     * measuring titles ahead of time with the {@link TextMeasurer}
+     *
+     * @param context        Context
+     * @param textAppearance The text appearance of the title, 0 for the default
+     * @return
+     */
+    @NonNull
+    public static TextPaint createTitlePaint(Context context, @StyleRes int textAppearance) {
+        TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        initTitlePaint(context.getResources(), paint);
+        if (textAppearance != 0) applyTextAppearance(context, paint, textAppearance);
+        return paint;
+    }
+
+    /**
+     * Returns the width available to the title of an item
+     *
+     * @param res         Resources
+     * @param isGrid      If the item is grid styled
+     * @param iconVisible If the item shows an icon
+     * @param itemWidth   The width of the item
+     * @return
+     */
+    public static int getTitleWidth(Resources res, boolean isGrid, boolean iconVisible, int itemWidth) {
+        return getTitleWidth(isGrid, res.getDimensionPixelSize(R.dimen.bottom_sheet_dialog_padding),
+                res.getDimensionPixelSize(isGrid ? R.dimen.bottom_sheet_grid_icon_size : R.dimen.bottom_sheet_list_icon_size),
+                iconVisible, itemWidth);
+    }
+
+    /**
+     * Returns the alignment of the title of an item
+     *
+     * @param isGrid If the item is grid styled
+     * @return
+     */
+    public static Layout.Alignment getTitleAlignment(boolean isGrid) {
+        return isGrid ? Layout.Alignment.ALIGN_CENTER : Layout.Alignment.ALIGN_NORMAL;
+    }
+
+    private static int getTitleWidth(boolean isGrid, int padding, int iconSize, boolean iconVisible, int itemWidth) {
+        return isGrid ? itemWidth : itemWidth - getTitleStart(padding, iconSize, iconVisible) - padding;
+    }
+
+    private static int getTitleStart(int padding, int iconSize, boolean iconVisible) {
+        // Matches the padding of the list item layout and its title
+        return iconVisible ? padding * 2 + iconSize : padding * 2;
+    }
+
+    private static void initTitlePaint(Resources res, TextPaint paint) {
+        paint.density = res.getDisplayMetrics().density;
+        paint.setTextSize(res.getDimension(R.dimen.bottom_sheet_text_size));
+    }
+
+    @Nullable
+    private static ColorStateList applyTextAppearance(Context context, TextPaint paint, @StyleRes int textAppearance) {
+        TypedArray ta = context.obtainStyledAttributes(textAppearance, TEXT_APPEARANCE_ATTRS);
+        paint.setTextSize(ta.getDimensionPixelSize(0, (int) paint.getTextSize()));
+        int typefaceIndex = ta.getInt(1, -1);
+        int textStyle = ta.getInt(2, Typeface.NORMAL);
+        ColorStateList color = ta.getColorStateList(3);
+        ta.recycle();
+
+        setTypeface(paint, getTypeface(typefaceIndex), textStyle);
+        return color;
+    }
+
+    private void updateIconBounds() {
+        if (mIcon == null) return;
+
+        int width = mIcon.getIntrinsicWidth();
+        int height = mIcon.getIntrinsicHeight();
+        int iconWidth = mIconSize;
+        int iconHeight = mIconSize;
+
+        // Fit the icon within its bounds, keeping its aspect ratio like an ImageView would
+        if (width > 0 && height > 0) {
+            float scale = Math.min((float) mIconSize / width, (float) mIconSize / height);
+            iconWidth = Math.round(width * scale);
+            iconHeight = Math.round(height * scale);
+        }
+
+        int left;
+        int top;
+
+        if (mIsGrid) {
+            left = (getWidth() - mIconSize) / 2;
+            top = mPadding;
+        } else {
+            left = isRtl() ? getWidth() - mPadding - mIconSize : mPadding;
+            top = (getHeight() - mIconSize) / 2;
+        }
+
+        left += (mIconSize - iconWidth) / 2;
+        top += (mIconSize - iconHeight) / 2;
+        mIcon.setBounds(left, top, left + iconWidth, top + iconHeight);
+    }
+
+    private void updateTitleColor() {
+        int color = mTitleColor != null ? mTitleColor.getColorForState(getDrawableState(), mTitleColor.getDefaultColor()) : Color.BLACK;
+        if (mContentAlpha < 1f) color = (color & 0x00FFFFFF) | ((int) (Color.alpha(color) * mContentAlpha) << 24);
+
+        if (mPaint.getColor() != color) {
+            mPaint.setColor(color);
+            invalidate();
+        }
+    }
+
+    private static void setTypeface(TextPaint paint, @Nullable Typeface typeface, int style) {
+        Typeface styled = typeface == null ? Typeface.defaultFromStyle(style) : Typeface.create(typeface, style);
+        paint.setTypeface(styled);
+        // Fake the styles the typeface does not support, like TextView does
+        int need = style & ~(styled != null ? styled.getStyle() : 0);
+        paint.setFakeBoldText((need & Typeface.BOLD) != 0);
+        paint.setTextSkewX((need & Typeface.ITALIC) != 0 ? -0.25f : 0);
+    }
+
+    @Nullable
+    private static Typeface getTypeface(int typefaceIndex) {
+        switch (typefaceIndex) {
+            case TYPEFACE_SANS:
+                return Typeface.SANS_SERIF;
+
+            case TYPEFACE_SERIF:
+                return Typeface.SERIF;
+
+            case TYPEFACE_MONOSPACE:
+                return Typeface.MONOSPACE;
+
+            default:
+                return null;
+        }
+    }
+
+    private boolean isRtl() {
+        return ViewCompat.getLayoutDirection(this) == ViewCompat.LAYOUT_DIRECTION_RTL;
+    }
+}
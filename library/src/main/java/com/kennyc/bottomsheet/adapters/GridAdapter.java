@@ -1,28 +1,35 @@
 package com.kennyc.bottomsheet.adapters;
 
 import android.content.Context;
-import android.graphics.Color;
-import android.graphics.LightingColorFilter;
+import android.content.res.Resources;
 import android.graphics.drawable.Drawable;
-import android.os.Build;
+import android.support.annotation.ColorInt;
 import android.support.annotation.StyleRes;
-import android.view.LayoutInflater;
+import android.text.Layout;
+import android.text.TextPaint;
+import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AdapterView;
 import android.widget.BaseAdapter;
 
-import com.kennyc.bottomsheet.R;
+import com.kennyc.bottomsheet.menu.BottomSheetMenuItem;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Created by kcampagna on 9/9/15.
  */
 public class GridAdapter extends BaseAdapter {
-    private final List<MenuItem> mItems;
+    private List<MenuItem> mItems;
 
-    private final LayoutInflater mInflater;
+    private boolean mStableIds;
+
+    private final Context mContext;
 
     private boolean mIsGrid;
 
@@ -34,20 +41,159 @@ public class GridAdapter extends BaseAdapter {
 
     private int mTintColor;
 
+    private boolean mFlatItems;
+
+    // Black at 12% unless the sheet sets the color of its style
+    @ColorInt
+    private int mActivatedColor = 0x1F000000;
+
     public GridAdapter(Context context, List<MenuItem> items, boolean isGrid, @StyleRes int listStyle, @StyleRes int gridStyle, int menuItemTintColor) {
-        mItems = items;
+        setItems(items);
         mIsGrid = isGrid;
-        mInflater = LayoutInflater.from(context);
+        mContext = context;
         mListStyle = listStyle;
         mGridStyle = gridStyle;
         mTintColor = menuItemTintColor;
     }
 
+    /**
+     * Sets if the rows are rendered by a single {@link FlatItemView} instead of the item layout. Must be set before the
+     * adapter is attached.
+     *
+     * @param flatItems
+     */
+    public void setFlatItems(boolean flatItems) {
+        mFlatItems = flatItems;
+    }
+
+    /**
+     * Sets the color shown behind the rows of checked items, only the rows of checkable items get a background showing it
+     *
+     * @param activatedColor
+     */
+    public void setActivatedColor(@ColorInt int activatedColor) {
+        mActivatedColor = activatedColor;
+    }
+
+    /**
+     * Measures the titles of the items on a background thread, so the first layout pass does not have to
+     *
+     * @param itemWidth The width in pixels of a single item
+     */
+    public void precomputeTitles(int itemWidth) {
+        precomputeTitles(mContext, mItems, mIsGrid, mFlatItems, mIsGrid ? mGridStyle : mListStyle, itemWidth);
+    }
+
+    /**
+     * Measures the titles of items on a background thread, before their adapter is created. The measured titles are
+     * drawn by the {@link MeasuredTextView} of the item layout, or by the {@link FlatItemView} of flat rows.
+     *
+     * @param context        The context the rows will be inflated with
+     * @param items          The items
+     * @param isGrid         If the rows are grid styled
+     * @param isFlat         If the rows are rendered by a {@link FlatItemView}
+     * @param textAppearance The text appearance of the titles
+     * @param itemWidth      The width in pixels of a single item
+     */
+    public static void precomputeTitles(Context context, List<MenuItem> items, boolean isGrid, boolean isFlat,
+                                        @StyleRes int textAppearance, int itemWidth) {
+        List<CharSequence> withIcon = new ArrayList<>(items.size());
+        List<CharSequence> withoutIcon = new ArrayList<>(0);
+
+        for (MenuItem item : getVisibleItems(items)) {
+            // List items without an icon have more room for their title
+            if (isGrid || hasIcon(item)) {
+                withIcon.add(item.getTitle());
+            } else {
+                withoutIcon.add(item.getTitle());
+            }
+        }
+
+        // The item layouts leave the title the same room as a flat row
+        Resources res = context.getResources();
+        TextPaint paint = isFlat ? FlatItemView.createTitlePaint(context, textAppearance) : MeasuredTextView.createPaint(context, textAppearance);
+        Layout.Alignment alignment = isFlat ? FlatItemView.getTitleAlignment(isGrid) : Layout.Alignment.ALIGN_NORMAL;
+        TextMeasurer.precompute(withIcon, paint, FlatItemView.getTitleWidth(res, isGrid, true, itemWidth), alignment, true);
+        TextMeasurer.precompute(withoutIcon, paint, FlatItemView.getTitleWidth(res, isGrid, false, itemWidth), alignment, true);
+    }
+
+    /**
+     * Returns if the item has an icon, without loading icons that have not been loaded yet
+     *
+     * @param item
+     * @return
+     */
+    private static boolean hasIcon(MenuItem item) {
+        return item instanceof BottomSheetMenuItem ? ((BottomSheetMenuItem) item).hasIcon() : item.getIcon() != null;
+    }
+
+    /**
+     * Replaces the items of the adapter without notifying it, see {@link ListDiff} for updating a showing list. Items
+     * that are not visible are left out.
+     *
+     * @param items
+     */
+    public void setItems(List<MenuItem> items) {
+        mItems = getVisibleItems(items);
+        mStableIds = hasUniqueIds(mItems);
+    }
+
+    /**
+     * Returns the visible items of the given list, the list itself if all of them are visible
+     *
+     * @param items
+     * @return
+     */
+    public static List<MenuItem> getVisibleItems(List<MenuItem> items) {
+        List<MenuItem> visible = null;
+
+        for (int i = 0; i < items.size(); i++) {
+            MenuItem item = items.get(i);
+
+            if (item.isVisible()) {
+                if (visible != null) visible.add(item);
+            } else if (visible == null) {
+                visible = new ArrayList<>(items.subList(0, i));
+            }
+        }
+
+        return visible != null ? visible : items;
+    }
+
+    /**
+     * Returns the visible items of the adapter
+     *
+     * @return
+     */
+    public List<MenuItem> getItems() {
+        return mItems;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return mStableIds;
+    }
+
     @Override
     public int getCount() {
         return mItems.size();
     }
 
+    @Override
+    public boolean areAllItemsEnabled() {
+        for (MenuItem item : mItems) {
+            if (!item.isEnabled()) return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        MenuItem item = getItem(position);
+        return item != null && item.isEnabled();
+    }
+
     @Override
     public MenuItem getItem(int position) {
         return mItems.get(position);
@@ -55,7 +201,24 @@ public class GridAdapter extends BaseAdapter {
 
     @Override
     public long getItemId(int position) {
-        return getItem(position).getItemId();
+        MenuItem item = getItem(position);
+        return item != null ? item.getItemId() : 0;
+    }
+
+    /**
+     * Returns if every item has a unique id, which is then used as its stable id
+     *
+     * @param items
+     * @return
+     */
+    private static boolean hasUniqueIds(List<MenuItem> items) {
+        Set<Integer> ids = new HashSet<>(items.size());
+
+        for (MenuItem item : items) {
+            if (item.getItemId() == Menu.NONE || !ids.add(item.getItemId())) return false;
+        }
+
+        return true;
     }
 
     @Override
@@ -64,29 +227,38 @@ public class GridAdapter extends BaseAdapter {
         ViewHolder holder;
 
         if (convertView == null) {
-            convertView = mInflater.inflate(mIsGrid ? R.layout.bottom_sheet_grid_item : R.layout.bottom_sheet_list_item, parent, false);
-            holder = new ViewHolder(convertView);
             int textAppearance = mIsGrid ? mGridStyle : mListStyle;
+            convertView = ItemViewPool.obtain(mContext, ItemViewPool.getItemLayout(mIsGrid, mFlatItems), textAppearance, parent);
+            holder = (ViewHolder) convertView.getTag();
 
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                holder.title.setTextAppearance(textAppearance);
-            } else {
-                holder.title.setTextAppearance(convertView.getContext(), textAppearance);
-            }
+            if (!holder.isRecycled) holder.setTitleAppearance(textAppearance);
         } else {
             holder = (ViewHolder) convertView.getTag();
         }
 
+        if (!holder.bind(item != null && hasStableIds() ? item.getItemId() : AdapterView.INVALID_ROW_ID)) return convertView;
+
+        if (item == null) {
+            // Placeholder until the item has been loaded, keep the room of the icon so the row does not resize
+            holder.setIcon(null);
+            holder.setIconVisible(true);
+            holder.setTitle(null);
+            holder.setEnabled(true);
+            holder.setChecked(false, false, 0);
+            return convertView;
+        }
+
         Drawable menuIcon = item.getIcon();
         if (mTintColor != Integer.MIN_VALUE && menuIcon != null) {
-            // mutate it, so we do not tint the original menu icon
-            menuIcon = menuIcon.mutate();
-            menuIcon.setColorFilter(new LightingColorFilter(Color.BLACK, mTintColor));
+            // Shared tinted copy, so we do not tint the original menu icon
+            menuIcon = TintedIconCache.get(mContext.getResources(), menuIcon, mTintColor, holder.getIcon());
         }
 
-        holder.icon.setImageDrawable(menuIcon);
-        holder.icon.setVisibility(menuIcon != null ? View.VISIBLE : View.GONE);
-        holder.title.setText(item.getTitle());
+        holder.setIcon(menuIcon);
+        holder.setIconVisible(menuIcon != null);
+        holder.setTitle(item.getTitle());
+        holder.setEnabled(item.isEnabled());
+        holder.setChecked(item.isCheckable(), item.isChecked(), mActivatedColor);
         return convertView;
     }
 }
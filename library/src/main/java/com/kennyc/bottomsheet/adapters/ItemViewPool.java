@@ -0,0 +1,375 @@
+package com.kennyc.bottomsheet.adapters;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.os.Bundle;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+import android.support.annotation.StyleRes;
+import android.util.SparseArray;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.AdapterView;
+
+import com.kennyc.bottomsheet.R;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process wide pool of item views shared by successive {@link com.kennyc.bottomsheet.BottomSheet}s, so a new sheet can
+ * bind recycled rows instead of inflating them again. Views are pooled by their layout resource along with a variant
+ * describing how the adapter styled them when they were created.<p>
+ * Views are pooled per context they were inflated with, so they keep the theme of the sheet. Sheets of the same style
+ * and owner share the context returned by {@link #getItemContext(Context, int)}, and the views of an Activity are
+ * dropped once it is destroyed. When the destruction of an Activity can't be observed, its views are dropped by
+ * {@link #trim(Context)} as soon as its sheet is gone. All methods must be called from the main thread.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class ItemViewPool {
+    private static final int MAX_VIEWS_PER_TYPE = 32;
+
+    private static final Map<Context, Pool> sPools = new HashMap<>();
+
+    // The themed contexts of each owner keyed by style
+    private static final Map<Context, SparseArray<Context>> sItemContexts = new HashMap<>();
+
+    private static boolean sRegistered;
+
+    private ItemViewPool() {
+        // No instances
+    }
+
+    /**
+     * Returns the context the item views of a sheet are inflated with, themed like the window of the sheet. Every sheet
+     * of the same owner and style gets the same context, so they can reuse each other's views.
+     *
+     * @param context The context the sheet is created with, usually an Activity
+     * @param style   The style of the window of the sheet
+     * @return
+     */
+    @NonNull
+    public static Context getItemContext(@NonNull Context context, @StyleRes int style) {
+        if (!sRegistered && context.getApplicationContext() instanceof Application) {
+            sRegistered = true;
+            ((Application) context.getApplicationContext()).registerActivityLifecycleCallbacks(new LifecycleCallbacks());
+        }
+
+        // Nothing would drop the context of an Activity that is already going away
+        if (isGone(context)) return new ContextThemeWrapper(context, style);
+
+        SparseArray<Context> contexts = sItemContexts.get(context);
+
+        if (contexts == null) {
+            contexts = new SparseArray<>();
+            sItemContexts.put(context, contexts);
+        }
+
+        Context itemContext = contexts.get(style);
+
+        if (itemContext == null) {
+            itemContext = new ContextThemeWrapper(context, style);
+            contexts.put(style, itemContext);
+        }
+
+        return itemContext;
+    }
+
+    /**
+     * Returns the layout used for the rows of a {@link com.kennyc.bottomsheet.BottomSheet}
+     *
+     * @param isGrid If the rows are grid styled
+     * @param isFlat If the rows are rendered by a single {@link FlatItemView}
+     * @return
+     */
+    @LayoutRes
+    public static int getItemLayout(boolean isGrid, boolean isFlat) {
+        if (isFlat) return isGrid ? R.layout.bottom_sheet_flat_grid_item : R.layout.bottom_sheet_flat_list_item;
+        return isGrid ? R.layout.bottom_sheet_grid_item : R.layout.bottom_sheet_list_item;
+    }
+
+    /**
+     * Returns a recycled view for the given layout and variant, inflating a new one if none are available
+     *
+     * @param context    The context views are inflated with, see {@link #getItemContext(Context, int)}
+     * @param layoutRes  The layout of the view
+     * @param variant    The variant of the view, such as the text appearance it was styled with
+     * @param parent     The parent the view will be attached to
+     * @return The view along with its {@link ViewHolder}. The caller must style the view if {@link ViewHolder#isRecycled} is false
+     */
+    @NonNull
+    public static View obtain(Context context, @LayoutRes int layoutRes, int variant, ViewGroup parent) {
+        Pool pool = sPools.get(context);
+        List<View> views = pool != null ? pool.getViews(layoutRes, variant, false) : null;
+
+        if (views != null && !views.isEmpty()) {
+            View view = views.remove(views.size() - 1);
+            ((ViewHolder) view.getTag()).isRecycled = true;
+            return view;
+        }
+
+        List<View> unstyled = pool != null ? pool.unstyled.get(layoutRes) : null;
+
+        if (unstyled != null && !unstyled.isEmpty()) {
+            View view = unstyled.remove(unstyled.size() - 1);
+            ((ViewHolder) view.getTag()).variant = variant;
+            return view;
+        }
+
+        View view = LayoutInflater.from(context).inflate(layoutRes, parent, false);
+        ViewHolder holder = new ViewHolder(view);
+        holder.context = context;
+        holder.layoutRes = layoutRes;
+        holder.variant = variant;
+        return view;
+    }
+
+    /**
+     * Reclaims every item view of the given list, detaching them from it and returning them to the pool. The list is
+     * left without an adapter, which must be set again before the list is shown.
+     *
+     * @param listView The list whose views should be recycled
+     */
+    public static void recycle(@NonNull AbsListView listView) {
+        List<View> views = new ArrayList<>();
+        listView.reclaimViews(views);
+        // Removing the adapter detaches every child from the list
+        listView.setAdapter(null);
+
+        for (View view : views) {
+            release(view);
+        }
+    }
+
+    /**
+     * Returns a single view to the pool. The view must not have a parent.
+     *
+     * @param view The view to return, views not obtained from {@link #obtain(Context, int, int, ViewGroup)} are ignored
+     */
+    public static void release(@NonNull View view) {
+        if (view.getParent() != null || !(view.getTag() instanceof ViewHolder)) return;
+
+        ViewHolder holder = (ViewHolder) view.getTag();
+        if (holder.layoutRes == 0 || holder.context == null || isGone(holder.context)) return;
+
+        List<View> views = getPool(holder.context).getViews(holder.layoutRes, holder.variant, true);
+        if (views.size() >= MAX_VIEWS_PER_TYPE || views.contains(view)) return;
+
+        // Drop references to the content of the previous sheet
+        view.animate().cancel();
+        view.setAlpha(1f);
+        AppIconLoader.cancel(holder.getIconView());
+        holder.setIcon(null);
+        holder.setTitle(null);
+        holder.setEnabled(true);
+        holder.setChecked(false, false, 0);
+        holder.bind(AdapterView.INVALID_ROW_ID);
+        views.add(view);
+    }
+
+    /**
+     * Adds a view that has been inflated ahead of time, before any adapter has styled it
+     *
+     * @param view      The view, must not have a parent
+     * @param context   The context the view was inflated with
+     * @param layoutRes The layout the view was inflated from
+     */
+    public static void offer(@NonNull View view, @NonNull Context context, @LayoutRes int layoutRes) {
+        if (view.getParent() != null || isGone(context)) return;
+
+        Pool pool = getPool(context);
+        List<View> views = pool.unstyled.get(layoutRes);
+
+        if (views == null) {
+            views = new ArrayList<>();
+            pool.unstyled.put(layoutRes, views);
+        }
+
+        if (views.size() >= MAX_VIEWS_PER_TYPE) return;
+
+        ViewHolder holder = new ViewHolder(view);
+        holder.context = context;
+        holder.layoutRes = layoutRes;
+        views.add(view);
+    }
+
+    /**
+     * Returns the number of views available for the given context and layout, regardless of how they are styled
+     *
+     * @param context   The context the views were inflated with
+     * @param layoutRes The layout of the views
+     * @return
+     */
+    public static int size(@NonNull Context context, @LayoutRes int layoutRes) {
+        Pool pool = sPools.get(context);
+        if (pool == null) return 0;
+
+        int size = 0;
+        List<View> unstyled = pool.unstyled.get(layoutRes);
+        if (unstyled != null) size += unstyled.size();
+
+        SparseArray<List<View>> variants = pool.styled.get(layoutRes);
+
+        if (variants != null) {
+            for (int i = 0; i < variants.size(); i++) {
+                size += variants.valueAt(i).size();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Drops the views and item contexts of the Activity a sheet was shown for when the pool could not keep them safely,
+     * because the Activity is going away or its destruction can't be observed. Called once a sheet no longer shows its
+     * item views.
+     *
+     * @param itemContext The context the item views of the sheet were inflated with
+     */
+    public static void trim(@NonNull Context itemContext) {
+        Activity activity = getActivity(itemContext);
+        if (activity != null && (!sRegistered || isGone(itemContext))) remove(activity);
+    }
+
+    /**
+     * Empties the pool, along with the tinted icons shown by the pooled views
+     */
+    public static void clear() {
+        sPools.clear();
+        TintedIconCache.clear();
+    }
+
+    private static Pool getPool(Context context) {
+        Pool pool = sPools.get(context);
+
+        if (pool == null) {
+            pool = new Pool();
+            sPools.put(context, pool);
+        }
+
+        return pool;
+    }
+
+    /**
+     * Drops the views and item contexts belonging to a destroyed Activity
+     *
+     * @param activity The destroyed Activity
+     */
+    private static void remove(Activity activity) {
+        Iterator<Map.Entry<Context, SparseArray<Context>>> iterator = sItemContexts.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<Context, SparseArray<Context>> entry = iterator.next();
+            if (!isWrapping(entry.getKey(), activity)) continue;
+
+            for (int i = 0; i < entry.getValue().size(); i++) {
+                sPools.remove(entry.getValue().valueAt(i));
+            }
+
+            iterator.remove();
+        }
+
+        // Views offered for contexts that were not created by getItemContext
+        Iterator<Context> pools = sPools.keySet().iterator();
+
+        while (pools.hasNext()) {
+            if (isWrapping(pools.next(), activity)) pools.remove();
+        }
+    }
+
+    /**
+     * Returns if the context belongs to an Activity that is going away, whose views must not be pooled
+     */
+    private static boolean isGone(Context context) {
+        Activity activity = getActivity(context);
+        return activity != null && (activity.isFinishing() || activity.isChangingConfigurations());
+    }
+
+    @Nullable
+    private static Activity getActivity(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) return (Activity) context;
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+
+        return null;
+    }
+
+    private static boolean isWrapping(Context context, Activity activity) {
+        while (context != null) {
+            if (context == activity) return true;
+            context = context instanceof ContextWrapper ? ((ContextWrapper) context).getBaseContext() : null;
+        }
+
+        return false;
+    }
+
+    private static class Pool {
+        // Styled views keyed by their layout and variant
+        final SparseArray<SparseArray<List<View>>> styled = new SparseArray<>();
+
+        // Views inflated ahead of time that have not been styled by an adapter yet
+        final SparseArray<List<View>> unstyled = new SparseArray<>();
+
+        @Nullable
+        List<View> getViews(@LayoutRes int layoutRes, int variant, boolean create) {
+            SparseArray<List<View>> variants = styled.get(layoutRes);
+
+            if (variants == null) {
+                if (!create) return null;
+                variants = new SparseArray<>();
+                styled.put(layoutRes, variants);
+            }
+
+            List<View> views = variants.get(variant);
+
+            if (views == null && create) {
+                views = new ArrayList<>();
+                variants.put(variant, views);
+            }
+
+            return views;
+        }
+    }
+
+    private static class LifecycleCallbacks implements Application.ActivityLifecycleCallbacks {
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+            remove(activity);
+        }
+    }
+}
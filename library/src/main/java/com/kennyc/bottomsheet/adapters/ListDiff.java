@@ -0,0 +1,304 @@
+package com.kennyc.bottomsheet.adapters;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.RestrictTo;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Computes the difference between two lists of items by their stable ids, so a showing
+ * {@link com.kennyc.bottomsheet.BottomSheet} only rebinds the rows that changed. When items keep their positions, the
+ * changed rows are rebound in place. Otherwise the adapter is notified and the inserted rows fade in, the visible rows
+ * of unchanged items keep their views without being bound again when the list lays them out by their stable ids.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class ListDiff {
+    private static final long FADE_DURATION = 150L;
+
+    private static final Executor EXECUTOR = BackgroundExecutor.newSerialExecutor();
+
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+
+    private ListDiff() {
+        // No instances
+    }
+
+    public interface ItemCallback<T> {
+        /**
+         * Returns the stable id of the item, the same id the adapter returns for it
+         *
+         * @param item
+         * @return
+         */
+        long getId(T item);
+
+        /**
+         * Returns if an item with the same id is displayed the same way
+         *
+         * @param oldItem
+         * @param newItem
+         * @return
+         */
+        boolean areContentsTheSame(T oldItem, T newItem);
+    }
+
+    public interface Listener {
+        /**
+         * Called on the main thread once the difference has been calculated
+         *
+         * @param result
+         */
+        void onDiffCalculated(@NonNull Result result);
+    }
+
+    public static class Result {
+        /**
+         * If items were inserted, removed or moved
+         */
+        boolean structureChanged;
+
+        /**
+         * Positions of the items whose contents changed, only set when the structure did not change
+         */
+        final List<Integer> changed = new ArrayList<>();
+
+        /**
+         * Ids of the items whose contents changed
+         */
+        final Set<Long> changedIds = new HashSet<>();
+
+        /**
+         * Ids of the items that were inserted
+         */
+        final Set<Long> inserted = new HashSet<>();
+
+        /**
+         * If rows can be matched to their items by id, false when ids are not unique
+         */
+        boolean idsUnique = true;
+
+        /**
+         * Marks an item as changed, for items changed in place which the {@link ItemCallback} can't tell apart from
+         * their previous state
+         *
+         * @param id The stable id of the item
+         */
+        public void markChanged(long id) {
+            changedIds.add(id);
+        }
+
+        /**
+         * Returns if items were inserted, removed or moved
+         *
+         * @return
+         */
+        public boolean isStructureChanged() {
+            return structureChanged;
+        }
+
+        /**
+         * Returns if the lists are displayed the same way
+         *
+         * @return
+         */
+        public boolean isEmpty() {
+            return !structureChanged && changed.isEmpty() && changedIds.isEmpty();
+        }
+    }
+
+    /**
+     * Calculates the difference between the lists on a background thread. Must be called from the main thread, the
+     * lists are copied so they may be changed afterwards.
+     *
+     * @param oldItems The items currently displayed
+     * @param newItems The items that will be displayed
+     * @param callback Provides the ids and compares the contents of the items
+     * @param listener Notified on the main thread with the result
+     */
+    public static <T> void calculateAsync(List<T> oldItems, List<T> newItems, final ItemCallback<T> callback, final Listener listener) {
+        final List<T> oldCopy = new ArrayList<>(oldItems);
+        final List<T> newCopy = new ArrayList<>(newItems);
+
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Result result = calculate(oldCopy, newCopy, callback);
+
+                sHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onDiffCalculated(result);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Calculates the difference between the lists on the calling thread
+     *
+     * @param oldItems The items currently displayed
+     * @param newItems The items that will be displayed
+     * @param callback Provides the ids and compares the contents of the items
+     * @return
+     */
+    @NonNull
+    public static <T> Result calculate(List<T> oldItems, List<T> newItems, ItemCallback<T> callback) {
+        Result result = new Result();
+        Map<Long, Integer> oldPositions = new HashMap<>(oldItems.size());
+        boolean duplicates = false;
+
+        for (int i = 0; i < oldItems.size(); i++) {
+            if (oldPositions.put(callback.getId(oldItems.get(i)), i) != null) duplicates = true;
+        }
+
+        result.structureChanged |= oldItems.size() != newItems.size();
+        Set<Long> newIds = new HashSet<>(newItems.size());
+
+        for (int i = 0; i < newItems.size(); i++) {
+            long id = callback.getId(newItems.get(i));
+            Integer oldPosition = oldPositions.get(id);
+
+            if (!newIds.add(id)) {
+                duplicates = true;
+            } else if (oldPosition == null) {
+                result.inserted.add(id);
+                result.structureChanged = true;
+            } else if (oldPosition != i) {
+                result.structureChanged = true;
+            }
+
+            if (oldPosition != null && !callback.areContentsTheSame(oldItems.get(oldPosition), newItems.get(i))) {
+                result.changedIds.add(id);
+                if (oldPosition == i) result.changed.add(i);
+            }
+        }
+
+        if (duplicates) {
+            // Without unique ids rows can't be matched, rebind everything
+            result.structureChanged = true;
+            result.idsUnique = false;
+            result.inserted.clear();
+        }
+
+        if (result.structureChanged) result.changed.clear();
+        return result;
+    }
+
+    /**
+     * Applies the result to the list, the adapter must already hold the new items
+     *
+     * @param result  The result of {@link #calculate(List, List, ItemCallback)}
+     * @param list    The list displaying the adapter
+     * @param adapter The adapter
+     */
+    public static void dispatch(@NonNull Result result, @NonNull AbsListView list, @NonNull BaseAdapter adapter) {
+        if (result.structureChanged) {
+            if (result.idsUnique && adapter.hasStableIds()) keepUnchanged(list, result.changedIds);
+            adapter.notifyDataSetChanged();
+            if (!result.inserted.isEmpty()) fadeIn(list, adapter, result.inserted);
+        } else {
+            for (int position : result.changed) {
+                rebind(list, adapter, position, position + 1);
+            }
+
+            // Items changed in place are at the same positions, their ids are looked up after the new items were set
+            if (!result.changedIds.isEmpty()) rebindIds(list, adapter, result.changedIds, result.changed);
+        }
+    }
+
+    /**
+     * Binds the visible rows of the given range again, without notifying the adapter
+     *
+     * @param list    The list displaying the adapter
+     * @param adapter The adapter
+     * @param start   The first position to rebind
+     * @param end     The position after the last one to rebind
+     */
+    public static void rebind(@NonNull AbsListView list, @NonNull BaseAdapter adapter, int start, int end) {
+        int first = list.getFirstVisiblePosition();
+        int from = Math.max(start, first);
+        int to = Math.min(end, first + list.getChildCount());
+
+        for (int position = from; position < to; position++) {
+            View child = list.getChildAt(position - first);
+            if (child.getTag() instanceof ViewHolder) ((ViewHolder) child.getTag()).keepBinding = false;
+            // The view is bound in place as it is passed as the convert view
+            adapter.getView(position, child, list);
+        }
+    }
+
+    private static void rebindIds(AbsListView list, BaseAdapter adapter, Set<Long> ids, List<Integer> rebound) {
+        int first = list.getFirstVisiblePosition();
+
+        for (int i = 0; i < list.getChildCount(); i++) {
+            int position = first + i;
+            if (!rebound.contains(position) && ids.contains(adapter.getItemId(position))) rebind(list, adapter, position, position + 1);
+        }
+    }
+
+    /**
+     * Lets the visible rows of unchanged items skip their next bind when the list lays them out again. The views are
+     * matched to their items by the stable ids of the adapter, rows that end up showing another item are bound as usual.
+     */
+    private static void keepUnchanged(final AbsListView list, Set<Long> changedIds) {
+        final List<ViewHolder> kept = new ArrayList<>();
+
+        for (int i = 0; i < list.getChildCount(); i++) {
+            Object tag = list.getChildAt(i).getTag();
+            if (!(tag instanceof ViewHolder)) continue;
+
+            ViewHolder holder = (ViewHolder) tag;
+            holder.keepBinding = !changedIds.contains(holder.boundId);
+            if (holder.keepBinding) kept.add(holder);
+        }
+
+        if (kept.isEmpty()) return;
+
+        list.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                list.getViewTreeObserver().removeOnPreDrawListener(this);
+
+                // Rows that were not laid out again are bound as usual the next time
+                for (ViewHolder holder : kept) {
+                    holder.keepBinding = false;
+                }
+
+                return true;
+            }
+        });
+    }
+
+    private static void fadeIn(final AbsListView list, final BaseAdapter adapter, final Set<Long> inserted) {
+        list.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                list.getViewTreeObserver().removeOnPreDrawListener(this);
+                int first = list.getFirstVisiblePosition();
+
+                for (int i = 0; i < list.getChildCount(); i++) {
+                    if (!inserted.contains(adapter.getItemId(first + i))) continue;
+
+                    View child = list.getChildAt(i);
+                    child.setAlpha(0f);
+                    child.animate().alpha(1f).setDuration(FADE_DURATION);
+                }
+
+                return true;
+            }
+        });
+    }
+}
@@ -0,0 +1,183 @@
+package com.kennyc.bottomsheet.adapters;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+import android.support.annotation.StyleRes;
+import android.text.Layout;
+import android.text.Spanned;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.text.method.SingleLineTransformationMethod;
+import android.text.method.TransformationMethod;
+import android.util.AttributeSet;
+import android.widget.TextView;
+
+/**
+ * {@link TextView} that draws the {@link Layout} measured ahead of time by the {@link TextMeasurer} when one matches its
+ * text, paint and width, so its first measure pass does not lay out the text again. Only wrapping, non editable plain
+ * text is drawn this way, anything else such as spanned text or an exact size is measured and drawn by the
+ * {@link TextView} as usual.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class MeasuredTextView extends TextView {
+    // The layout drawn instead of the one of the TextView, along with what it was measured for
+    @Nullable
+    private Layout mMeasured;
+
+    @Nullable
+    private CharSequence mMeasuredText;
+
+    private float mMeasuredTextSize;
+
+    @Nullable
+    private Typeface mMeasuredTypeface;
+
+    public MeasuredTextView(Context context) {
+        super(context);
+    }
+
+    public MeasuredTextView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public MeasuredTextView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    /**
+     * Returns a paint equivalent to the one of a {@link TextView} styled with the given text appearance, for measuring
+     * texts ahead of time with the {@link TextMeasurer}
+     *
+     * @param context        The context the views will be inflated with
+     * @param textAppearance The text appearance of the views, 0 for the default
+     * @return
+     */
+    @NonNull
+    public static TextPaint createPaint(Context context, @StyleRes int textAppearance) {
+        TextView textView = new TextView(context);
+
+        if (textAppearance == 0) {
+            // Keep the default
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            textView.setTextAppearance(textAppearance);
+        } else {
+            textView.setTextAppearance(context, textAppearance);
+        }
+
+        return textView.getPaint();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        Layout layout = getMeasuredLayout(widthMeasureSpec, heightMeasureSpec);
+
+        if (layout == null) {
+            mMeasured = null;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
+
+        float lineWidth = 0;
+
+        for (int i = 0; i < layout.getLineCount(); i++) {
+            lineWidth = Math.max(lineWidth, layout.getLineWidth(i));
+        }
+
+        int width = (int) Math.ceil(lineWidth) + getCompoundPaddingLeft() + getCompoundPaddingRight();
+        int height = layout.getHeight() + getExtendedPaddingTop() + getExtendedPaddingBottom();
+        width = Math.min(Math.max(width, getSuggestedMinimumWidth()), MeasureSpec.getSize(widthMeasureSpec));
+        height = resolveSize(Math.max(height, getSuggestedMinimumHeight()), heightMeasureSpec);
+
+        mMeasured = layout;
+        mMeasuredText = getText();
+        mMeasuredTextSize = getPaint().getTextSize();
+        mMeasuredTypeface = getPaint().getTypeface();
+        setMeasuredDimension(width, height);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mMeasured == null) {
+            super.onDraw(canvas);
+            return;
+        }
+
+        if (mMeasuredText != getText() || mMeasuredTextSize != getPaint().getTextSize() || mMeasuredTypeface != getPaint().getTypeface()) {
+            // Changed without a new measure pass, the TextView lays out the text itself until the next one
+            mMeasured = null;
+            requestLayout();
+            super.onDraw(canvas);
+            return;
+        }
+
+        // The measured layout shares its paint with other views, only the state of this view is applied to it
+        TextPaint paint = mMeasured.getPaint();
+        paint.setColor(getCurrentTextColor());
+        paint.drawableState = getDrawableState();
+
+        canvas.save();
+        canvas.translate(getCompoundPaddingLeft(), getExtendedPaddingTop());
+        mMeasured.draw(canvas);
+        canvas.restore();
+    }
+
+    @Override
+    public int getBaseline() {
+        if (mMeasured == null) return super.getBaseline();
+        return getExtendedPaddingTop() + mMeasured.getLineBaseline(0);
+    }
+
+    @Override
+    protected void onTextChanged(CharSequence text, int start, int lengthBefore, int lengthAfter) {
+        super.onTextChanged(text, start, lengthBefore, lengthAfter);
+
+        if (mMeasured != null) {
+            // The TextView has no layout of its own, so it does not know it has to be measured again
+            mMeasured = null;
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    private boolean hasCompoundDrawables() {
+        for (Drawable drawable : getCompoundDrawables()) {
+            if (drawable != null) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the layout measured ahead of time for the current text, NULL if the view has to be measured by the
+     * {@link TextView}
+     */
+    @Nullable
+    private Layout getMeasuredLayout(int widthMeasureSpec, int heightMeasureSpec) {
+        CharSequence text = getText();
+        if (TextUtils.isEmpty(text) || text instanceof Spanned || hasCompoundDrawables()) return null;
+
+        // Exact sizes would need the gravity of the TextView applied to the layout
+        if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.AT_MOST || MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.EXACTLY) {
+            return null;
+        }
+
+        TransformationMethod transformation = getTransformationMethod();
+        boolean singleLine = transformation instanceof SingleLineTransformationMethod;
+
+        if (transformation != null && !singleLine) return null;
+        // The single line transformation replaces line breaks, and the TextMeasurer only ellipsizes at the end
+        if (singleLine && (getEllipsize() != TextUtils.TruncateAt.END || TextUtils.indexOf(text, '\n') >= 0)) return null;
+
+        int width = MeasureSpec.getSize(widthMeasureSpec) - getCompoundPaddingLeft() - getCompoundPaddingRight();
+        Layout layout = TextMeasurer.get(text, getPaint(), width, Layout.Alignment.ALIGN_NORMAL, singleLine);
+        // Right to left paragraphs are aligned to the measured width, not to the width of the view
+        if (layout == null || layout.getParagraphDirection(0) != Layout.DIR_LEFT_TO_RIGHT) return null;
+        return layout;
+    }
+}
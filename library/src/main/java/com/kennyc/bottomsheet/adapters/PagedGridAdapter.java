@@ -0,0 +1,259 @@
+package com.kennyc.bottomsheet.adapters;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.RestrictTo;
+import android.support.annotation.StyleRes;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
+
+import com.kennyc.bottomsheet.BottomSheetDataSource;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link GridAdapter} backed by a {@link BottomSheetDataSource}. Items are loaded a page at a time on a background thread
+ * when their rows are bound, the neighbouring page is loaded ahead of time when nearing its edge. Rows of pages that
+ * have not been loaded are bound as placeholders. At most {@link #MAX_PAGES} pages are kept, apart from the pages
+ * overlapping the visible rows and their neighbours, which are never evicted. Pages that failed to load or came back
+ * short are requested again after a delay that grows with every attempt.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class PagedGridAdapter extends GridAdapter {
+    private static final String TAG = PagedGridAdapter.class.getSimpleName();
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    private static final int MAX_PAGES = 4;
+
+    private static final long RETRY_DELAY = 1000L;
+
+    private static final int MAX_RETRY_SHIFT = 5;
+
+    // Data sources are never called from more than one thread at a time
+    private static final Executor EXECUTOR = BackgroundExecutor.newSerialExecutor();
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private final BottomSheetDataSource mDataSource;
+
+    private final int mPageSize;
+
+    private final SparseArray<List<MenuItem>> mPages = new SparseArray<>();
+
+    private final SparseBooleanArray mLoading = new SparseBooleanArray();
+
+    // Pages that failed to load or came back short, by the uptime they may be requested again at
+    private final SparseArray<Long> mRetryAt = new SparseArray<>();
+
+    private final SparseIntArray mAttempts = new SparseIntArray();
+
+    private int mCount;
+
+    // The pages of the first and last visible rows
+    private int mFirstVisiblePage;
+
+    private int mLastVisiblePage;
+
+    // Incremented whenever loaded pages are dropped, so loads started before are ignored
+    private int mGeneration;
+
+    public PagedGridAdapter(Context context, BottomSheetDataSource dataSource, int pageSize, boolean isGrid, @StyleRes int listStyle, @StyleRes int gridStyle, int menuItemTintColor) {
+        super(context, Collections.<MenuItem>emptyList(), isGrid, listStyle, gridStyle, menuItemTintColor);
+        mDataSource = dataSource;
+        mPageSize = pageSize > 0 ? pageSize : DEFAULT_PAGE_SIZE;
+        mCount = dataSource.getCount();
+    }
+
+    /**
+     * Drops every loaded page and reads the count of the {@link BottomSheetDataSource} again
+     */
+    public void refresh() {
+        release();
+        mCount = mDataSource.getCount();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Drops every loaded page and ignores the loads in progress
+     */
+    public void release() {
+        mGeneration++;
+        mPages.clear();
+        mLoading.clear();
+        mRetryAt.clear();
+        mAttempts.clear();
+    }
+
+    @Override
+    public int getCount() {
+        return mCount;
+    }
+
+    @Override
+    public MenuItem getItem(int position) {
+        List<MenuItem> page = mPages.get(position / mPageSize);
+        int index = position % mPageSize;
+        return page != null && index < page.size() ? page.get(index) : null;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        // Placeholders have no identity
+        return false;
+    }
+
+    @Override
+    public boolean areAllItemsEnabled() {
+        return false;
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        return getItem(position) != null;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        int page = position / mPageSize;
+        int offset = position % mPageSize;
+        updateVisiblePages(position, parent);
+        requestPage(page);
+
+        // Load the neighbouring page ahead of time when nearing the edge of the current one
+        if (offset >= mPageSize * 3 / 4) {
+            requestPage(page + 1);
+        } else if (offset < mPageSize / 4 && page > 0) {
+            requestPage(page - 1);
+        }
+
+        return super.getView(position, convertView, parent);
+    }
+
+    /**
+     * Tracks the pages of the visible rows, including the row being bound which may not be attached yet
+     */
+    private void updateVisiblePages(int position, ViewGroup parent) {
+        int first = position;
+        int last = position;
+
+        if (parent instanceof AdapterView && parent.getChildCount() > 0) {
+            AdapterView<?> list = (AdapterView<?>) parent;
+            first = Math.min(first, list.getFirstVisiblePosition());
+            last = Math.max(last, list.getLastVisiblePosition());
+        }
+
+        mFirstVisiblePage = first / mPageSize;
+        mLastVisiblePage = last / mPageSize;
+    }
+
+    private void requestPage(final int page) {
+        final int start = page * mPageSize;
+        if (start >= mCount || mLoading.get(page)) return;
+
+        Long retryAt = mRetryAt.get(page);
+
+        if (retryAt != null) {
+            if (SystemClock.uptimeMillis() < retryAt) return;
+        } else if (mPages.get(page) != null) {
+            return;
+        }
+
+        final int count = Math.min(mPageSize, mCount - start);
+        final int generation = mGeneration;
+        mLoading.put(page, true);
+
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<MenuItem> items = null;
+
+                try {
+                    items = mDataSource.loadRange(start, count);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Unable to load items " + start + " to " + (start + count), e);
+                }
+
+                final List<MenuItem> loaded = items;
+
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mGeneration) return;
+
+                        mLoading.delete(page);
+
+                        if (loaded != null && loaded.size() >= count) {
+                            mRetryAt.delete(page);
+                            mAttempts.delete(page);
+                        } else {
+                            scheduleRetry(page, generation);
+                        }
+
+                        // The rows a short page does have are shown until it is loaded again
+                        if (loaded == null || loaded.isEmpty()) return;
+
+                        mPages.put(page, loaded);
+                        evictPages();
+                        notifyDataSetChanged();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Lets the page be requested again after a delay, then binds the visible rows again so they request it if the page is
+     * still visible
+     */
+    private void scheduleRetry(final int page, final int generation) {
+        int attempts = mAttempts.get(page);
+        long delay = RETRY_DELAY << Math.min(attempts, MAX_RETRY_SHIFT);
+        mAttempts.put(page, attempts + 1);
+        mRetryAt.put(page, SystemClock.uptimeMillis() + delay);
+
+        mHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration) return;
+                if (page >= mFirstVisiblePage - 1 && page <= mLastVisiblePage + 1) notifyDataSetChanged();
+            }
+        }, delay);
+    }
+
+    private void evictPages() {
+        // The visible pages and the neighbours loaded ahead of time
+        int keepFirst = mFirstVisiblePage - 1;
+        int keepLast = mLastVisiblePage + 1;
+
+        while (mPages.size() > MAX_PAGES) {
+            // Evict the page furthest from the visible rows
+            int furthest = -1;
+            int furthestDistance = 0;
+
+            for (int i = 0; i < mPages.size(); i++) {
+                int page = mPages.keyAt(i);
+                int distance = page < keepFirst ? keepFirst - page : page - keepLast;
+
+                if (distance > furthestDistance) {
+                    furthest = i;
+                    furthestDistance = distance;
+                }
+            }
+
+            // Every page left is visible or about to be
+            if (furthest < 0) return;
+            mPages.removeAt(furthest);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.kennyc.bottomsheet.adapters;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+import android.support.v4.util.LruCache;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Measures text on a background thread ahead of the first layout pass of a {@link com.kennyc.bottomsheet.BottomSheet}.
+ * The resulting {@link Layout}s are kept so a {@link FlatItemView} or a {@link MeasuredTextView} can draw them without
+ * measuring its text again.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class TextMeasurer {
+    private static final int MAX_LAYOUTS = 128;
+
+    private static final Executor EXECUTOR = BackgroundExecutor.newSerialExecutor();
+
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+
+    // Only accessed from the main thread
+    private static final LruCache<String, Layout> sLayouts = new LruCache<>(MAX_LAYOUTS);
+
+    private TextMeasurer() {
+        // No instances
+    }
+
+    /**
+     * Measures the given texts on a background thread. Once measured, the layouts are available from
+     * {@link #get(CharSequence, TextPaint, int, Layout.Alignment, boolean)}. Must be called from the main thread.
+     *
+     * @param texts      The texts to measure
+     * @param paint      The paint the texts will be drawn with, a copy is used for measuring
+     * @param width      The width in pixels available to the texts
+     * @param alignment  The alignment of the texts
+     * @param singleLine If the texts are shown on a single ellipsized line
+     */
+    public static void precompute(@NonNull List<? extends CharSequence> texts, @NonNull TextPaint paint, final int width,
+                                  final Layout.Alignment alignment, final boolean singleLine) {
+        if (width <= 0 || texts.isEmpty()) return;
+
+        final TextPaint measurePaint = new TextPaint(paint);
+        final List<CharSequence> toMeasure = new ArrayList<>(texts.size());
+
+        for (CharSequence text : texts) {
+            if (!TextUtils.isEmpty(text) && sLayouts.get(getKey(text, measurePaint, width, alignment, singleLine)) == null) {
+                toMeasure.add(text);
+            }
+        }
+
+        if (toMeasure.isEmpty()) return;
+
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<Layout> layouts = new ArrayList<>(toMeasure.size());
+
+                for (CharSequence text : toMeasure) {
+                    layouts.add(build(text, measurePaint, width, alignment, singleLine));
+                }
+
+                sHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < layouts.size(); i++) {
+                            sLayouts.put(getKey(toMeasure.get(i), measurePaint, width, alignment, singleLine), layouts.get(i));
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Returns the layout measured for the text, if it has been measured with an equivalent paint
+     *
+     * @param text       The text
+     * @param paint      The paint the text will be drawn with
+     * @param width      The width in pixels available to the text
+     * @param alignment  The alignment of the text
+     * @param singleLine If the text is shown on a single ellipsized line
+     * @return The measured layout, NULL if it has not been measured yet
+     */
+    @Nullable
+    public static Layout get(@NonNull CharSequence text, @NonNull TextPaint paint, int width, Layout.Alignment alignment, boolean singleLine) {
+        return sLayouts.get(getKey(text, paint, width, alignment, singleLine));
+    }
+
+    /**
+     * Measures the text on the calling thread
+     *
+     * @param text       The text
+     * @param paint      The paint the text will be drawn with
+     * @param width      The width in pixels available to the text
+     * @param alignment  The alignment of the text
+     * @param singleLine If the text is shown on a single ellipsized line
+     * @return
+     */
+    @NonNull
+    public static Layout build(@NonNull CharSequence text, @NonNull TextPaint paint, int width, Layout.Alignment alignment, boolean singleLine) {
+        CharSequence display = text;
+        int layoutWidth = width;
+
+        if (singleLine) {
+            display = TextUtils.ellipsize(text, paint, width, TextUtils.TruncateAt.END);
+            layoutWidth = Math.min(width, (int) Math.ceil(Layout.getDesiredWidth(display, paint)));
+        }
+
+        return new StaticLayout(display, paint, Math.max(0, layoutWidth), alignment, 1.0f, 0.0f, true);
+    }
+
+    /**
+     * Drops every measured layout
+     */
+    public static void clear() {
+        sLayouts.evictAll();
+    }
+
+    private static String getKey(CharSequence text, TextPaint paint, int width, Layout.Alignment alignment, boolean singleLine) {
+        // The color is not part of the key, it does not affect measuring
+        return text.toString() + '\u0000' + width + '|' + alignment + '|' + singleLine + '|' + paint.getTextSize() + '|'
+                + System.identityHashCode(paint.getTypeface()) + '|' + paint.isFakeBoldText() + '|' + paint.getTextSkewX();
+    }
+}
@@ -0,0 +1,94 @@
+package com.kennyc.bottomsheet.adapters;
+
+import android.content.res.Resources;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.LightingColorFilter;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Cache of tinted menu icons shared by every {@link GridAdapter}. Icons are keyed by the {@link Drawable.ConstantState}
+ * of the original icon and the tint color, so the same icon tinted the same way shares a single tinted constant state
+ * and the original icon is never mutated. Must only be used from the main thread.
+ */
+class TintedIconCache {
+    // Weak keys, the cache should not keep icons that are no longer used by any menu alive
+    private static final Map<Drawable.ConstantState, SparseArray<Drawable.ConstantState>> sIcons = new WeakHashMap<>();
+
+    private static final SparseArray<ColorFilter> sFilters = new SparseArray<>();
+
+    private TintedIconCache() {
+        // No instances
+    }
+
+    /**
+     * Returns the given icon tinted with the color
+     *
+     * @param res     Resources used for creating the tinted drawable
+     * @param icon    The icon to tint
+     * @param color   The tint color
+     * @param current The drawable currently shown, returned as is if it is already the tinted icon
+     * @return
+     */
+    @NonNull
+    static Drawable get(Resources res, @NonNull Drawable icon, int color, @Nullable Drawable current) {
+        ColorFilter filter = getFilter(color);
+        Drawable.ConstantState state = icon.getConstantState();
+
+        if (state == null) {
+            // The icon can't be shared, fall back to tinting a mutated copy
+            Drawable tinted = icon.mutate();
+            tinted.setColorFilter(filter);
+            return tinted;
+        }
+
+        SparseArray<Drawable.ConstantState> tints = sIcons.get(state);
+
+        if (tints == null) {
+            tints = new SparseArray<>(1);
+            sIcons.put(state, tints);
+        }
+
+        Drawable.ConstantState tintedState = tints.get(color);
+
+        if (tintedState == null) {
+            Drawable tinted = state.newDrawable(res).mutate();
+            tinted.setColorFilter(filter);
+            tintedState = tinted.getConstantState();
+            if (tintedState == null) return tinted;
+            tints.put(color, tintedState);
+        }
+
+        if (current != null && current.getConstantState() == tintedState) return current;
+
+        Drawable tinted = tintedState.newDrawable(res);
+        // Not every drawable keeps its color filter in its constant state, the filter itself is shared
+        tinted.setColorFilter(filter);
+        return tinted;
+    }
+
+    /**
+     * Empties the cache
+     */
+    static void clear() {
+        sIcons.clear();
+        sFilters.clear();
+    }
+
+    private static ColorFilter getFilter(int color) {
+        ColorFilter filter = sFilters.get(color);
+
+        if (filter == null) {
+            filter = new LightingColorFilter(Color.BLACK, color);
+            sFilters.put(color, filter);
+        }
+
+        return filter;
+    }
+}
@@ -1,19 +1,227 @@
 package com.kennyc.bottomsheet.adapters;
 
+import android.content.Context;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.StateListDrawable;
+import android.os.Build;
+import android.support.annotation.ColorInt;
+import android.support.annotation.Nullable;
+import android.support.annotation.StyleRes;
+import android.support.v4.view.ViewCompat;
+import android.util.StateSet;
 import android.view.View;
+import android.widget.AdapterView;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.kennyc.bottomsheet.R;
 
 public class ViewHolder {
+    private static final float DISABLED_ALPHA = 0.38f;
+
     public TextView title;
 
     public ImageView icon;
 
+    /**
+     * The view of the row when rendered by a {@link FlatItemView}, {@link #title} and {@link #icon} will be NULL
+     */
+    public FlatItemView item;
+
+    /**
+     * The root view of the row
+     */
+    final View itemView;
+
+    /**
+     * The context the view was inflated with when obtained from the {@link ItemViewPool}
+     */
+    Context context;
+
+    /**
+     * The layout the view was inflated from when obtained from the {@link ItemViewPool}
+     */
+    int layoutRes;
+
+    /**
+     * The variant the view was styled as when obtained from the {@link ItemViewPool}
+     */
+    int variant;
+
+    /**
+     * If the view was reused from the {@link ItemViewPool} and has already been styled
+     */
+    public boolean isRecycled;
+
+    /**
+     * The stable id of the item the row was last bound to, {@link AdapterView#INVALID_ROW_ID} when it has none
+     */
+    long boundId = AdapterView.INVALID_ROW_ID;
+
+    /**
+     * If the next bind can be skipped when the row is bound to the same item again, set by {@link ListDiff} for the rows
+     * of items that did not change
+     */
+    boolean keepBinding;
+
+    // The drawable given to setSharedIcon, and the instance of it shown by the row
+    @Nullable
+    private Drawable sharedIcon;
+
+    @Nullable
+    private Drawable sharedIconCopy;
+
+    // The background of the layout while the row shows the activated state, and the color it is shown with
+    @Nullable
+    private Drawable defaultBackground;
+
+    @ColorInt
+    private int activatedColor;
+
     public ViewHolder(View view) {
-        title = (TextView) view.findViewById(R.id.title);
-        icon = (ImageView) view.findViewById(R.id.icon);
+        itemView = view;
+
+        if (view instanceof FlatItemView) {
+            item = (FlatItemView) view;
+        } else {
+            title = (TextView) view.findViewById(R.id.title);
+            icon = (ImageView) view.findViewById(R.id.icon);
+        }
+
         view.setTag(this);
     }
+
+    /**
+     * Records the item the row is about to be bound to
+     *
+     * @param id The stable id of the item, {@link AdapterView#INVALID_ROW_ID} when it has none
+     * @return If the row has to be bound, false when it already shows the unchanged item
+     */
+    boolean bind(long id) {
+        boolean keep = keepBinding && id != AdapterView.INVALID_ROW_ID && id == boundId;
+        keepBinding = false;
+        boundId = id;
+        return !keep;
+    }
+
+    /**
+     * Returns the view the icon is displayed in
+     *
+     * @return
+     */
+    View getIconView() {
+        return item != null ? item : icon;
+    }
+
+    @Nullable
+    Drawable getIcon() {
+        return item != null ? item.getIcon() : icon.getDrawable();
+    }
+
+    void setIcon(@Nullable Drawable drawable) {
+        if (item != null) {
+            item.setIcon(drawable);
+        } else if (icon.getDrawable() != drawable) {
+            icon.setImageDrawable(drawable);
+        }
+    }
+
+    /**
+     * Shows a drawable that may be shown by other rows as well, such as the icon of an app kept by a cache. A drawable can
+     * only be attached to a single view, so the row shows its own instance created from the state of the drawable. The
+     * instance is kept while the row shows the same drawable.
+     *
+     * @param drawable
+     */
+    void setSharedIcon(@Nullable Drawable drawable) {
+        if (drawable != null && drawable == sharedIcon && getIcon() == sharedIconCopy) return;
+
+        Drawable.ConstantState state = drawable != null ? drawable.getConstantState() : null;
+        sharedIcon = drawable;
+        sharedIconCopy = state != null ? state.newDrawable(itemView.getResources()) : drawable;
+        setIcon(sharedIconCopy);
+    }
+
+    void setIconVisible(boolean visible) {
+        if (item != null) {
+            item.setIconVisible(visible);
+        } else {
+            icon.setVisibility(visible ? View.VISIBLE : View.GONE);
+        }
+    }
+
+    void setTitle(@Nullable CharSequence text) {
+        if (item != null) {
+            item.setTitle(text);
+        } else {
+            title.setText(text);
+        }
+    }
+
+    void setEnabled(boolean enabled) {
+        if (itemView.isEnabled() == enabled) return;
+
+        itemView.setEnabled(enabled);
+        // Dim the contents rather than the row, the alpha of the row is animated when it is inserted
+        float alpha = enabled ? 1f : DISABLED_ALPHA;
+
+        if (item != null) {
+            item.setContentAlpha(alpha);
+        } else {
+            icon.setAlpha(alpha);
+            title.setAlpha(alpha);
+        }
+    }
+
+    /**
+     * Marks the row as checked by activating it. Only rows of checkable items get a background showing the activated
+     * state, the others keep the background of their layout.
+     *
+     * @param checkable      If the item can be checked, reported to accessibility services
+     * @param checked
+     * @param activatedColor The color shown behind the row while it is checked
+     */
+    void setChecked(boolean checkable, boolean checked, @ColorInt int activatedColor) {
+        if (item != null) item.setCheckable(checkable);
+        setActivatedColor(checkable ? activatedColor : 0);
+        itemView.setActivated(checkable && checked);
+    }
+
+    private void setActivatedColor(@ColorInt int color) {
+        if (color == activatedColor) return;
+        if (activatedColor == 0) defaultBackground = itemView.getBackground();
+
+        activatedColor = color;
+        Drawable background = defaultBackground;
+
+        if (color != 0) {
+            StateListDrawable states = new StateListDrawable();
+            states.addState(new int[]{android.R.attr.state_activated}, new ColorDrawable(color));
+            if (defaultBackground != null) states.addState(StateSet.WILD_CARD, defaultBackground);
+            background = states;
+        } else {
+            defaultBackground = null;
+        }
+
+        ViewCompat.setBackground(itemView, background);
+    }
+
+    void setTitleAppearance(@StyleRes int textAppearance) {
+        if (item != null) {
+            item.setTitleAppearance(textAppearance);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            title.setTextAppearance(textAppearance);
+        } else {
+            title.setTextAppearance(title.getContext(), textAppearance);
+        }
+    }
+
+    void setTitleColor(int color) {
+        if (item != null) {
+            item.setTitleColor(color);
+        } else {
+            title.setTextColor(color);
+        }
+    }
 }
@@ -20,6 +20,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
+import android.util.SparseArray;
 import android.view.KeyEvent;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -29,12 +30,38 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class BottomSheetMenu implements Menu {
+    // Bits of the ordering of an item used by the order of its category, the lower ones count the items added
+    private static final int ORDERING_SHIFT = 40;
+
+    private static final int[] sCategoryToOrder = new int[]{
+            1, /* No category */
+            4, /* CONTAINER */
+            5, /* SYSTEM */
+            3, /* SECONDARY */
+            2, /* ALTERNATIVE */
+            0, /* SELECTED_ALTERNATIVE */
+    };
+
     private Context mContext;
 
     private boolean mIsQwerty;
 
+    // The number of items added so far, tells apart the items added with the same order
+    private long mAdded;
+
+    // Sorted by ordering, items with the same order keep the order they were added in
     private ArrayList<BottomSheetMenuItem> mItems;
 
+    // Items by id and by group, each sorted the same way as mItems
+    private final SparseArray<ArrayList<BottomSheetMenuItem>> mIdIndex = new SparseArray<>();
+
+    private final SparseArray<ArrayList<BottomSheetMenuItem>> mGroupIndex = new SparseArray<>();
+
+    // Items by shortcut, built when first needed and dropped when items or their shortcuts change
+    private SparseArray<BottomSheetMenuItem> mAlphabeticShortcuts;
+
+    private SparseArray<BottomSheetMenuItem> mNumericShortcuts;
+
     public BottomSheetMenu(Context context) {
         mContext = context;
         mItems = new ArrayList<>();
@@ -58,11 +85,107 @@ public class BottomSheetMenu implements Menu {
 
     public MenuItem add(int groupId, int itemId, int order, CharSequence title) {
         BottomSheetMenuItem item = new BottomSheetMenuItem(getContext(), groupId, itemId, 0, order, title);
-        // TODO Order is ignored here.
-        mItems.add(item);
+        item.setOrdering(((long) getOrdering(order) << ORDERING_SHIFT) | mAdded++);
+        item.setMenu(this);
+        insert(mItems, item);
+        insert(getIndexList(mIdIndex, itemId), item);
+        insert(getIndexList(mGroupIndex, groupId), item);
+        onShortcutsChanged();
         return item;
     }
 
+    /**
+     * Returns the ordering of an item within the menu, the category of the order takes precedence over the order
+     * within the category like it does for platform menus
+     *
+     * @param categoryOrder The order passed to {@link #add(int, int, int, CharSequence)}
+     * @return
+     */
+    private static int getOrdering(int categoryOrder) {
+        final int index = (categoryOrder & CATEGORY_MASK) >> CATEGORY_SHIFT;
+
+        if (index < 0 || index >= sCategoryToOrder.length) {
+            throw new IllegalArgumentException("order does not contain a valid category.");
+        }
+
+        return (sCategoryToOrder[index] << CATEGORY_SHIFT) | (categoryOrder & USER_MASK);
+    }
+
+    /**
+     * Inserts the item after every item with a lower ordering, which are all the items added before it with the same or
+     * a lower order
+     *
+     * @param items The sorted items
+     * @param item  The item to insert
+     */
+    private static void insert(ArrayList<BottomSheetMenuItem> items, BottomSheetMenuItem item) {
+        items.add(lowerBound(items, item.getOrdering()), item);
+    }
+
+    /**
+     * Returns the position of the first item with the same or a higher ordering
+     */
+    private static int lowerBound(ArrayList<BottomSheetMenuItem> items, long ordering) {
+        int low = 0;
+        int high = items.size();
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (items.get(mid).getOrdering() < ordering) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Returns the position of the item, found by its ordering as no two items share one
+     *
+     * @param items The sorted items
+     * @param item  The item to look for
+     * @return The position, -1 if the item is not in the list
+     */
+    private static int indexOf(ArrayList<BottomSheetMenuItem> items, BottomSheetMenuItem item) {
+        int index = lowerBound(items, item.getOrdering());
+        return index < items.size() && items.get(index) == item ? index : -1;
+    }
+
+    private static void remove(ArrayList<BottomSheetMenuItem> items, BottomSheetMenuItem item) {
+        int index = indexOf(items, item);
+        if (index >= 0) items.remove(index);
+    }
+
+    private static ArrayList<BottomSheetMenuItem> getIndexList(SparseArray<ArrayList<BottomSheetMenuItem>> index, int key) {
+        ArrayList<BottomSheetMenuItem> items = index.get(key);
+
+        if (items == null) {
+            items = new ArrayList<>(1);
+            index.put(key, items);
+        }
+
+        return items;
+    }
+
+    private static void removeFromIndex(SparseArray<ArrayList<BottomSheetMenuItem>> index, int key, BottomSheetMenuItem item) {
+        ArrayList<BottomSheetMenuItem> items = index.get(key);
+        if (items == null) return;
+
+        remove(items, item);
+        if (items.isEmpty()) index.remove(key);
+    }
+
+    /**
+     * Called when an item of the menu changed one of its shortcuts
+     */
+    void onShortcutsChanged() {
+        mAlphabeticShortcuts = null;
+        mNumericShortcuts = null;
+    }
+
     public int addIntentOptions(int groupId, int itemId, int order,
                                 ComponentName caller, Intent[] specifics, Intent intent, int flags,
                                 MenuItem[] outSpecificItems) {
@@ -94,47 +217,42 @@ public class BottomSheetMenu implements Menu {
     }
 
     public SubMenu addSubMenu(CharSequence title) {
-        // TODO Implement submenus
-        return null;
+        return addSubMenu(0, 0, 0, title);
     }
 
     public SubMenu addSubMenu(int titleRes) {
-        // TODO Implement submenus
-        return null;
+        return addSubMenu(0, 0, 0, titleRes);
     }
 
     public SubMenu addSubMenu(int groupId, int itemId, int order,
                               CharSequence title) {
-        // TODO Implement submenus
-        return null;
+        BottomSheetMenuItem item = (BottomSheetMenuItem) add(groupId, itemId, order, title);
+        BottomSheetSubMenu subMenu = new BottomSheetSubMenu(mContext, item);
+        item.setSubMenu(subMenu);
+        return subMenu;
     }
 
     public SubMenu addSubMenu(int groupId, int itemId, int order, int titleRes) {
-        // TODO Implement submenus
-        return null;
+        return addSubMenu(groupId, itemId, order, mContext.getResources().getString(titleRes));
     }
 
     public void clear() {
+        for (BottomSheetMenuItem item : mItems) {
+            item.setMenu(null);
+        }
+
         mItems.clear();
+        mIdIndex.clear();
+        mGroupIndex.clear();
+        onShortcutsChanged();
     }
 
     public void close() {
     }
 
-    private int findItemIndex(int id) {
-        final ArrayList<BottomSheetMenuItem> items = mItems;
-        final int itemCount = items.size();
-        for (int i = 0; i < itemCount; i++) {
-            if (items.get(i).getItemId() == id) {
-                return i;
-            }
-        }
-
-        return -1;
-    }
-
     public MenuItem findItem(int id) {
-        return mItems.get(findItemIndex(id));
+        ArrayList<BottomSheetMenuItem> items = mIdIndex.get(id);
+        return items != null ? items.get(0) : null;
     }
 
     public MenuItem getItem(int index) {
@@ -155,20 +273,19 @@ public class BottomSheetMenu implements Menu {
     }
 
     private BottomSheetMenuItem findItemWithShortcut(int keyCode, KeyEvent event) {
-        // TODO Make this smarter.
-        final boolean qwerty = mIsQwerty;
-        final ArrayList<BottomSheetMenuItem> items = mItems;
-        final int itemCount = items.size();
-
-        for (int i = 0; i < itemCount; i++) {
-            BottomSheetMenuItem item = items.get(i);
-            final char shortcut = qwerty ? item.getAlphabeticShortcut() :
-                    item.getNumericShortcut();
-            if (keyCode == shortcut) {
-                return item;
+        if (mAlphabeticShortcuts == null) {
+            mAlphabeticShortcuts = new SparseArray<>();
+            mNumericShortcuts = new SparseArray<>();
+
+            // Iterate backwards so the first item with a shortcut wins
+            for (int i = mItems.size() - 1; i >= 0; i--) {
+                BottomSheetMenuItem item = mItems.get(i);
+                if (item.getAlphabeticShortcut() != 0) mAlphabeticShortcuts.put(item.getAlphabeticShortcut(), item);
+                if (item.getNumericShortcut() != 0) mNumericShortcuts.put(item.getNumericShortcut(), item);
             }
         }
-        return null;
+
+        return (mIsQwerty ? mAlphabeticShortcuts : mNumericShortcuts).get(keyCode);
     }
 
     public boolean isShortcutKey(int keyCode, KeyEvent event) {
@@ -176,12 +293,8 @@ public class BottomSheetMenu implements Menu {
     }
 
     public boolean performIdentifierAction(int id, int flags) {
-        final int index = findItemIndex(id);
-        if (index < 0) {
-            return false;
-        }
-
-        return mItems.get(index).invoke();
+        final MenuItem item = findItem(id);
+        return item != null && ((BottomSheetMenuItem) item).invoke();
     }
 
     public boolean performShortcut(int keyCode, KeyEvent event, int flags) {
@@ -194,58 +307,70 @@ public class BottomSheetMenu implements Menu {
     }
 
     public void removeGroup(int groupId) {
+        final ArrayList<BottomSheetMenuItem> group = mGroupIndex.get(groupId);
+        if (group == null) return;
+
+        mGroupIndex.remove(groupId);
         final ArrayList<BottomSheetMenuItem> items = mItems;
-        int itemCount = items.size();
-        int i = 0;
-        while (i < itemCount) {
-            if (items.get(i).getGroupId() == groupId) {
-                items.remove(i);
-                itemCount--;
+
+        // The group is sorted like the items, the items before its first one stay where they are
+        int kept = Math.max(0, indexOf(items, group.get(0)));
+
+        // Compact the remaining items in a single pass rather than shifting them once per removed item
+        for (int i = kept; i < items.size(); i++) {
+            BottomSheetMenuItem item = items.get(i);
+
+            if (item.getGroupId() == groupId) {
+                removeFromIndex(mIdIndex, item.getItemId(), item);
+                item.setMenu(null);
             } else {
-                i++;
+                items.set(kept++, item);
             }
         }
+
+        items.subList(kept, items.size()).clear();
+        onShortcutsChanged();
     }
 
     public void removeItem(int id) {
-        mItems.remove(findItemIndex(id));
+        final MenuItem found = findItem(id);
+        if (found == null) return;
+
+        BottomSheetMenuItem item = (BottomSheetMenuItem) found;
+        remove(mItems, item);
+        removeFromIndex(mIdIndex, id, item);
+        removeFromIndex(mGroupIndex, item.getGroupId(), item);
+        item.setMenu(null);
+        onShortcutsChanged();
     }
 
     public void setGroupCheckable(int group, boolean checkable,
                                   boolean exclusive) {
-        final ArrayList<BottomSheetMenuItem> items = mItems;
-        final int itemCount = items.size();
+        final ArrayList<BottomSheetMenuItem> items = mGroupIndex.get(group);
+        if (items == null) return;
 
-        for (int i = 0; i < itemCount; i++) {
+        for (int i = 0; i < items.size(); i++) {
             BottomSheetMenuItem item = items.get(i);
-            if (item.getGroupId() == group) {
-                item.setCheckable(checkable);
-                item.setExclusiveCheckable(exclusive);
-            }
+            item.setCheckable(checkable);
+            item.setExclusiveCheckable(exclusive);
         }
     }
 
     public void setGroupEnabled(int group, boolean enabled) {
-        final ArrayList<BottomSheetMenuItem> items = mItems;
-        final int itemCount = items.size();
+        final ArrayList<BottomSheetMenuItem> items = mGroupIndex.get(group);
+        if (items == null) return;
 
-        for (int i = 0; i < itemCount; i++) {
-            BottomSheetMenuItem item = items.get(i);
-            if (item.getGroupId() == group) {
-                item.setEnabled(enabled);
-            }
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).setEnabled(enabled);
         }
     }
 
     public void setGroupVisible(int group, boolean visible) {
-        final ArrayList<BottomSheetMenuItem> items = mItems;
-        final int itemCount = items.size();
+        final ArrayList<BottomSheetMenuItem> items = mGroupIndex.get(group);
+        if (items == null) return;
 
-        for (int i = 0; i < itemCount; i++) {
-            BottomSheetMenuItem item = items.get(i);
-            if (item.getGroupId() == group) {
-                item.setVisible(visible);
-            }
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).setVisible(visible);
         }
     }
 
@@ -256,4 +381,4 @@ public class BottomSheetMenu implements Menu {
     public int size() {
         return mItems.size();
     }
-}
\ No newline at end of file
+}
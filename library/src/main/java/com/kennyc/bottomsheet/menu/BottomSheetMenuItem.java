@@ -19,6 +19,10 @@ import android.content.Context;
 import android.content.Intent;
 import android.graphics.drawable.Drawable;
 import android.support.annotation.DrawableRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+import android.support.v4.content.ContextCompat;
 import android.view.ActionProvider;
 import android.view.ContextMenu.ContextMenuInfo;
 import android.view.MenuItem;
@@ -34,6 +38,9 @@ public class BottomSheetMenuItem implements MenuItem {
 
     private final int mOrdering;
 
+    // The position of the item relative to the other items of its menu, assigned by the menu
+    private long mMenuOrdering;
+
     private CharSequence mTitle;
 
     private CharSequence mTitleCondensed;
@@ -52,6 +59,13 @@ public class BottomSheetMenuItem implements MenuItem {
 
     private MenuItem.OnMenuItemClickListener mClickListener;
 
+    private OnItemChangedListener mChangedListener;
+
+    // The menu the item was added to, notified when the shortcuts of the item change
+    private BottomSheetMenu mMenu;
+
+    private BottomSheetSubMenu mSubMenu;
+
     private static final int NO_ICON = 0;
 
     private int mFlags = ENABLED;
@@ -135,6 +149,41 @@ public class BottomSheetMenuItem implements MenuItem {
         setIcon(icon);
     }
 
+    /**
+     * Sets the listener notified when a displayed property of the item changes, such as by a showing
+     * {@link com.kennyc.bottomsheet.BottomSheet}
+     *
+     * @param listener
+     */
+    public void setOnItemChangedListener(@Nullable OnItemChangedListener listener) {
+        mChangedListener = listener;
+    }
+
+    /**
+     * Removes the listener, if it is the one currently set
+     *
+     * @param listener
+     */
+    public void removeOnItemChangedListener(@NonNull OnItemChangedListener listener) {
+        if (mChangedListener == listener) mChangedListener = null;
+    }
+
+    void setSubMenu(BottomSheetSubMenu subMenu) {
+        mSubMenu = subMenu;
+    }
+
+    void setMenu(BottomSheetMenu menu) {
+        mMenu = menu;
+    }
+
+    private void notifyShortcutsChanged() {
+        if (mMenu != null) mMenu.onShortcutsChanged();
+    }
+
+    private void notifyItemChanged(boolean visibilityChanged) {
+        if (mChangedListener != null) mChangedListener.onItemChanged(this, visibilityChanged);
+    }
+
     public char getAlphabeticShortcut() {
         return mShortcutAlphabeticChar;
     }
@@ -144,9 +193,23 @@ public class BottomSheetMenuItem implements MenuItem {
     }
 
     public Drawable getIcon() {
+        // Icon resources are only loaded once the icon is needed, such as when its row is first bound
+        if (mIconDrawable == null && mIconResId != NO_ICON) {
+            mIconDrawable = ContextCompat.getDrawable(mContext, mIconResId);
+        }
+
         return mIconDrawable;
     }
 
+    /**
+     * Returns if the item has an icon, without loading it
+     *
+     * @return
+     */
+    public boolean hasIcon() {
+        return mIconDrawable != null || mIconResId != NO_ICON;
+    }
+
     public Intent getIntent() {
         return mIntent;
     }
@@ -167,8 +230,22 @@ public class BottomSheetMenuItem implements MenuItem {
         return mOrdering;
     }
 
+    /**
+     * Returns the position of the item relative to the other items of its menu, by the category of its order, then by the
+     * order within the category, then by when it was added. No two items of a menu share one.
+     *
+     * @return
+     */
+    long getOrdering() {
+        return mMenuOrdering;
+    }
+
+    void setOrdering(long ordering) {
+        mMenuOrdering = ordering;
+    }
+
     public SubMenu getSubMenu() {
-        return null;
+        return mSubMenu;
     }
 
     public CharSequence getTitle() {
@@ -180,7 +257,26 @@ public class BottomSheetMenuItem implements MenuItem {
     }
 
     public boolean hasSubMenu() {
-        return false;
+        return mSubMenu != null;
+    }
+
+    /**
+     * Returns the resource the icon was set from, or 0 if it was set as a drawable or not at all. Does not load the icon
+     *
+     * @return
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    @DrawableRes
+    public int getIconResId() {
+        return mIconResId;
+    }
+
+    boolean isExclusiveCheckable() {
+        return (mFlags & EXCLUSIVE) != 0;
+    }
+
+    boolean hasClickListener() {
+        return mClickListener != null;
     }
 
     public boolean isCheckable() {
@@ -201,11 +297,13 @@ public class BottomSheetMenuItem implements MenuItem {
 
     public MenuItem setAlphabeticShortcut(char alphaChar) {
         mShortcutAlphabeticChar = alphaChar;
+        notifyShortcutsChanged();
         return this;
     }
 
     public MenuItem setCheckable(boolean checkable) {
         mFlags = (mFlags & ~CHECKABLE) | (checkable ? CHECKABLE : 0);
+        notifyItemChanged(false);
         return this;
     }
 
@@ -216,24 +314,29 @@ public class BottomSheetMenuItem implements MenuItem {
 
     public MenuItem setChecked(boolean checked) {
         mFlags = (mFlags & ~CHECKED) | (checked ? CHECKED : 0);
+        notifyItemChanged(false);
         return this;
     }
 
     public MenuItem setEnabled(boolean enabled) {
         mFlags = (mFlags & ~ENABLED) | (enabled ? ENABLED : 0);
+        notifyItemChanged(false);
         return this;
     }
 
     public MenuItem setIcon(Drawable icon) {
         mIconDrawable = icon;
         mIconResId = NO_ICON;
+        notifyItemChanged(false);
         return this;
     }
 
     public MenuItem setIcon(int iconRes) {
         if (iconRes != NO_ICON) {
             mIconResId = iconRes;
-            mIconDrawable = mContext.getResources().getDrawable(iconRes);
+            // Loaded by getIcon()
+            mIconDrawable = null;
+            notifyItemChanged(false);
         }
 
         return this;
@@ -246,6 +349,7 @@ public class BottomSheetMenuItem implements MenuItem {
 
     public MenuItem setNumericShortcut(char numericChar) {
         mShortcutNumericChar = numericChar;
+        notifyShortcutsChanged();
         return this;
     }
 
@@ -257,16 +361,19 @@ public class BottomSheetMenuItem implements MenuItem {
     public MenuItem setShortcut(char numericChar, char alphaChar) {
         mShortcutNumericChar = numericChar;
         mShortcutAlphabeticChar = alphaChar;
+        notifyShortcutsChanged();
         return this;
     }
 
     public MenuItem setTitle(CharSequence title) {
         mTitle = title;
+        notifyItemChanged(false);
         return this;
     }
 
     public MenuItem setTitle(int title) {
         mTitle = mContext.getResources().getString(title);
+        notifyItemChanged(false);
         return this;
     }
 
@@ -276,7 +383,13 @@ public class BottomSheetMenuItem implements MenuItem {
     }
 
     public MenuItem setVisible(boolean visible) {
-        mFlags = (mFlags & HIDDEN) | (visible ? 0 : HIDDEN);
+        int flags = (mFlags & ~HIDDEN) | (visible ? 0 : HIDDEN);
+
+        if (flags != mFlags) {
+            mFlags = flags;
+            notifyItemChanged(true);
+        }
+
         return this;
     }
 
@@ -293,6 +406,19 @@ public class BottomSheetMenuItem implements MenuItem {
         return false;
     }
 
+    /**
+     * Listener notified when a displayed property of a {@link BottomSheetMenuItem} changes
+     */
+    public interface OnItemChangedListener {
+        /**
+         * Called when a property of the item changed
+         *
+         * @param item              The item that changed
+         * @param visibilityChanged If the visibility of the item changed
+         */
+        void onItemChanged(@NonNull BottomSheetMenuItem item, boolean visibilityChanged);
+    }
+
     public void setShowAsAction(int show) {
         // Do nothing. ActionMenuItems always show as action buttons.
     }
@@ -0,0 +1,95 @@
+package com.kennyc.bottomsheet.menu;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.Nullable;
+import android.support.v4.content.ContextCompat;
+import android.view.MenuItem;
+import android.view.SubMenu;
+import android.view.View;
+
+/**
+ * {@link SubMenu} of a {@link BottomSheetMenu}. A {@link com.kennyc.bottomsheet.BottomSheet} shows its items on a page of
+ * their own when its item is selected, which is only built the first time it is opened.
+ */
+public class BottomSheetSubMenu extends BottomSheetMenu implements SubMenu {
+    private final BottomSheetMenuItem mItem;
+
+    private CharSequence mHeaderTitle;
+
+    private Drawable mHeaderIcon;
+
+    private View mHeaderView;
+
+    public BottomSheetSubMenu(Context context, BottomSheetMenuItem item) {
+        super(context);
+        mItem = item;
+    }
+
+    /**
+     * Returns the title shown above the items of the submenu, the title of its item if no header title was set
+     *
+     * @return
+     */
+    public CharSequence getHeaderTitle() {
+        return mHeaderTitle != null ? mHeaderTitle : mItem.getTitle();
+    }
+
+    @Nullable
+    public Drawable getHeaderIcon() {
+        return mHeaderIcon;
+    }
+
+    /**
+     * Returns the view shown above the items of the submenu in place of its header title and icon
+     *
+     * @return
+     */
+    @Nullable
+    public View getHeaderView() {
+        return mHeaderView;
+    }
+
+    public SubMenu setHeaderTitle(int titleRes) {
+        return setHeaderTitle(getContext().getText(titleRes));
+    }
+
+    public SubMenu setHeaderTitle(CharSequence title) {
+        mHeaderTitle = title;
+        return this;
+    }
+
+    public SubMenu setHeaderIcon(int iconRes) {
+        return setHeaderIcon(ContextCompat.getDrawable(getContext(), iconRes));
+    }
+
+    public SubMenu setHeaderIcon(Drawable icon) {
+        mHeaderIcon = icon;
+        return this;
+    }
+
+    public SubMenu setHeaderView(View view) {
+        mHeaderView = view;
+        return this;
+    }
+
+    public void clearHeader() {
+        mHeaderTitle = null;
+        mHeaderIcon = null;
+        mHeaderView = null;
+    }
+
+    public SubMenu setIcon(int iconRes) {
+        mItem.setIcon(iconRes);
+        return this;
+    }
+
+    public SubMenu setIcon(Drawable icon) {
+        mItem.setIcon(icon);
+        return this;
+    }
+
+    public MenuItem getItem() {
+        return mItem;
+    }
+}
@@ -0,0 +1,16 @@
+package com.kennyc.bottomsheet.menu;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Adds the items of a menu resource to a {@link BottomSheetMenu} without parsing its XML. Factories are usually generated
+ * at build time by menu-codegen.gradle and registered with {@link MenuTemplateCache#registerFactory(int, MenuFactory)}.
+ */
+public interface MenuFactory {
+    /**
+     * Adds the items of the menu
+     *
+     * @param menu The menu to add the items to, its context is used for resolving resources
+     */
+    void inflate(@NonNull BottomSheetMenu menu);
+}
@@ -0,0 +1,243 @@
+package com.kennyc.bottomsheet.menu;
+
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.support.annotation.MenuRes;
+import android.support.annotation.NonNull;
+import android.util.SparseArray;
+import android.view.MenuInflater;
+import android.view.SubMenu;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the items of inflated menu resources, so showing the same menu again does not parse its XML. Every call to
+ * {@link #inflate(Context, int)} returns a new {@link BottomSheetMenu} with new items that may be changed freely.
+ * Templates are kept per configuration and dropped when the configuration of the application changes. Menu resources
+ * with a registered {@link MenuFactory} are built by it instead, without parsing any XML.
+ */
+public class MenuTemplateCache {
+    private static MenuTemplateCache sInstance;
+
+    private static final SparseArray<MenuFactory> sFactories = new SparseArray<>();
+
+    private final SparseArray<Template> mTemplates = new SparseArray<>();
+
+    private MenuTemplateCache(Context context) {
+        context.registerComponentCallbacks(new ComponentCallbacks() {
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+                // Titles and icons were resolved for the previous configuration, such as its locale
+                clear();
+            }
+
+            @Override
+            public void onLowMemory() {
+                clear();
+            }
+        });
+    }
+
+    public static synchronized MenuTemplateCache get(Context context) {
+        if (sInstance == null) sInstance = new MenuTemplateCache(context.getApplicationContext());
+        return sInstance;
+    }
+
+    /**
+     * Registers the factory that builds the items of a menu resource, see menu-codegen.gradle for generating them
+     *
+     * @param menuRes The menu resource
+     * @param factory The factory adding the items of the resource
+     */
+    public static void registerFactory(@MenuRes int menuRes, @NonNull MenuFactory factory) {
+        synchronized (sFactories) {
+            sFactories.put(menuRes, factory);
+        }
+    }
+
+    /**
+     * Returns a new menu containing the items of the menu resource
+     *
+     * @param context The context of the menu, its configuration is used for resolving the resource
+     * @param menuRes The menu resource
+     * @return
+     */
+    @NonNull
+    public BottomSheetMenu inflate(@NonNull Context context, @MenuRes int menuRes) {
+        MenuFactory factory;
+
+        synchronized (sFactories) {
+            factory = sFactories.get(menuRes);
+        }
+
+        if (factory != null) {
+            BottomSheetMenu menu = new BottomSheetMenu(context);
+            factory.inflate(menu);
+            return menu;
+        }
+
+        Configuration configuration = context.getResources().getConfiguration();
+        Template template;
+
+        synchronized (this) {
+            template = mTemplates.get(menuRes);
+        }
+
+        if (template != null && template.configuration.equals(configuration)) return template.create(context);
+
+        BottomSheetMenu menu = new BottomSheetMenu(context);
+        new MenuInflater(context).inflate(menuRes, menu);
+        template = Template.from(menu, configuration);
+
+        if (template != null) {
+            synchronized (this) {
+                mTemplates.put(menuRes, template);
+            }
+        }
+
+        return menu;
+    }
+
+    /**
+     * Drops every template
+     */
+    public synchronized void clear() {
+        mTemplates.clear();
+    }
+
+    private static class Template {
+        final Configuration configuration;
+
+        final List<ItemTemplate> items;
+
+        private Template(Configuration configuration, List<ItemTemplate> items) {
+            this.configuration = configuration;
+            this.items = items;
+        }
+
+        /**
+         * Captures the items of the menu
+         *
+         * @param menu          The inflated menu
+         * @param configuration The configuration the menu was inflated with
+         * @return The template, NULL if the items can not be recreated from one
+         */
+        static Template from(BottomSheetMenu menu, Configuration configuration) {
+            List<ItemTemplate> items = capture(menu);
+            return items != null ? new Template(new Configuration(configuration), items) : null;
+        }
+
+        /**
+         * Captures the items of the menu and of its submenus
+         *
+         * @param menu The inflated menu
+         * @return The templates of the items, NULL if the items can not be recreated from them
+         */
+        static List<ItemTemplate> capture(BottomSheetMenu menu) {
+            List<ItemTemplate> items = new ArrayList<>(menu.size());
+
+            for (int i = 0; i < menu.size(); i++) {
+                BottomSheetMenuItem item = (BottomSheetMenuItem) menu.getItem(i);
+
+                // Click listeners set by android:onClick belong to the context that inflated them, and icons
+                // without a resource can't be shared
+                if (item.hasClickListener() || (item.hasIcon() && item.getIconResId() == 0)) return null;
+                List<ItemTemplate> subItems = null;
+
+                if (item.hasSubMenu()) {
+                    subItems = capture((BottomSheetMenu) item.getSubMenu());
+                    if (subItems == null) return null;
+                }
+
+                items.add(new ItemTemplate(item, subItems));
+            }
+
+            return items;
+        }
+
+        BottomSheetMenu create(Context context) {
+            BottomSheetMenu menu = new BottomSheetMenu(context);
+            addAll(items, menu);
+            return menu;
+        }
+
+        static void addAll(List<ItemTemplate> items, BottomSheetMenu menu) {
+            for (int i = 0; i < items.size(); i++) {
+                items.get(i).addTo(menu);
+            }
+        }
+    }
+
+    private static class ItemTemplate {
+        final int groupId;
+
+        final int itemId;
+
+        final int order;
+
+        final CharSequence title;
+
+        final CharSequence titleCondensed;
+
+        final int iconRes;
+
+        final char alphabeticShortcut;
+
+        final char numericShortcut;
+
+        final boolean checkable;
+
+        final boolean exclusive;
+
+        final boolean checked;
+
+        final boolean enabled;
+
+        final boolean visible;
+
+        // The items of the submenu of the item, NULL if it has none
+        final List<ItemTemplate> subItems;
+
+        ItemTemplate(BottomSheetMenuItem item, List<ItemTemplate> subItems) {
+            this.subItems = subItems;
+            groupId = item.getGroupId();
+            itemId = item.getItemId();
+            order = item.getOrder();
+            title = item.getTitle();
+            // Read the field itself, the getter falls back to the title
+            titleCondensed = item.getTitleCondensed() != item.getTitle() ? item.getTitleCondensed() : null;
+            iconRes = item.getIconResId();
+            alphabeticShortcut = item.getAlphabeticShortcut();
+            numericShortcut = item.getNumericShortcut();
+            checkable = item.isCheckable();
+            exclusive = item.isExclusiveCheckable();
+            checked = item.isChecked();
+            enabled = item.isEnabled();
+            visible = item.isVisible();
+        }
+
+        void addTo(BottomSheetMenu menu) {
+            BottomSheetMenuItem item;
+
+            if (subItems != null) {
+                SubMenu subMenu = menu.addSubMenu(groupId, itemId, order, title);
+                Template.addAll(subItems, (BottomSheetMenu) subMenu);
+                item = (BottomSheetMenuItem) subMenu.getItem();
+            } else {
+                item = (BottomSheetMenuItem) menu.add(groupId, itemId, order, title);
+            }
+
+            // The resources keep the drawables they loaded, so resolving the icon again does not parse it
+            if (iconRes != 0) item.setIcon(iconRes);
+            if (titleCondensed != null) item.setTitleCondensed(titleCondensed);
+            item.setShortcut(numericShortcut, alphabeticShortcut);
+            item.setCheckable(checkable);
+            item.setExclusiveCheckable(exclusive);
+            item.setChecked(checked);
+            item.setEnabled(enabled);
+            item.setVisible(visible);
+        }
+    }
+}
@@ -19,6 +19,8 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // Build the sheet menus without parsing their XML
+        GeneratedSheetMenus.register();
         setContentView(R.layout.activity_main);
         findViewById(R.id.gridBottomSheet).setOnClickListener(this);
         findViewById(R.id.listBottomSheet).setOnClickListener(this);